@@ -1,3 +1,8 @@
 #! /bin/sh
 
-java -cp bin/ component.Main $@
\ No newline at end of file
+# Enable the Vector API if the vector kernels were compiled
+if [ -f bin/benchmarking/VectorKernels.class ]; then
+	java --add-modules jdk.incubator.vector -cp bin/ component.Main $@
+else
+	java -cp bin/ component.Main $@
+fi
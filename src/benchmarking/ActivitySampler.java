@@ -0,0 +1,55 @@
+package benchmarking;
+
+/**
+ *	Decides how many clients are active in a sample. The engines do not distinguish
+ *	between clients, so the active clients are always the first ones; only their
+ *	number is random. With a fixed activity, a fraction of exactly the activity rate
+ *	is active. With Bernoulli activity, every client is active independently with the
+ *	activity rate as probability, so the number of active clients is binomially
+ *	distributed. It is drawn by skipping over the inactive clients with geometric
+ *	waiting times (see {@link Distributions#binomial}), which takes O(active) rather
+ *	than one random draw per client.
+ */
+public final class ActivitySampler {
+
+	public enum Model {
+		Fixed, Bernoulli;
+
+		@Override
+		public String toString() {
+			return name();
+		}
+	}
+
+	private final Model model;
+	private final double activity;
+
+	/**
+	 * @param model    How the number of active clients is determined
+	 * @param activity The activity rate of all clients, between 0 and 1
+	 */
+	public ActivitySampler(Model model, double activity) {
+		this.model = model;
+		this.activity = activity;
+	}
+
+	public Model getModel() {
+		return model;
+	}
+
+	public double getActivity() {
+		return activity;
+	}
+
+	/**
+	 * @param  r       The random source of the sample
+	 * @param  clients The number of clients
+	 * @return The number of active clients in a sample
+	 */
+	public int sample(RandomSource r, int clients) {
+		if(model == Model.Fixed) {
+			return (int) (activity * (double) clients);
+		}
+		return (int) Distributions.binomial(r, clients, activity);
+	}
+}
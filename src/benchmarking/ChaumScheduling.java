@@ -1,27 +1,29 @@
 package benchmarking;
 
-import java.util.Random;
-import java.util.Arrays;
-
 import tracking.StatisticsTracker;
 import tracking.RoundDataset;
 
 public class ChaumScheduling {
-	private Random r;
+	private RandomSource r;
 	private int c;
 	private int s;
-	private double a;
-	
-	// Statistical data
-	private long[] sentBits;
-	private int[] attempts;
+	// Decides how many clients are active in each sample
+	private final ActivitySampler activity;
+
+	// Whether no client, a single client or multiple clients chose each slot,
+	// reused across samples
+	private OccupancyTable slots;
 
 	private StatisticsTracker tracker;
 	private RoundDataset roundD;
 
-	public ChaumScheduling(int numSamples, int numSlots, int numClients, double activity, StatisticsTracker tracker, RoundDataset roundD) {
+	// Runs of new slots that leave at most this many free slots
+	// are summed up term by term, rather than approximated
+	private static final long STIRLING_MIN = 9;
+
+	public ChaumScheduling(int numSamples, int numSlots, int numClients, ActivitySampler activity, StatisticsTracker tracker, RoundDataset roundD, RandomSource random) {
 		this.c = numClients;
-		this.a = activity;
+		this.activity = activity;
 		this.tracker = tracker;
 		this.roundD = roundD;
 
@@ -29,47 +31,138 @@ public class ChaumScheduling {
 		// provided in the Chaum paper.
 		this.s = numSlots;
 
-		sentBits = new long[c];
-		attempts = new int[c];
-
-		r = new Random();
+		r = random;
 	}
 
 	public void schedule() {
 		
-		// Clients choose the slot in which they want to send
-		int[] choices = new int[c];
-		int numActive = (int) (a * (double) c);
-		for(int i = 0; i < c; i++) {
-			if(i < numActive) {
-				choices[i] = r.nextInt(s);
-				sentBits[i] += s;
-			} else {
-				choices[i] = -1;
-				continue;
-			}
+		// Clients choose the slot in which they want to send. Only active
+		// clients choose a slot, so inactive clients cost nothing.
+		int numActive = activity.sample(r, c);
+		if(slots == null) {
+			slots = new OccupancyTable(s);
+		}
+		slots.clear();
+		for(int i = 0; i < numActive; i++) {
+			slots.add(r.nextInt(s));
 		}
 		
 		if(tracker.reportRound()) {
-			int collisions = 0;
-			int emptySlots = 0;
-			int[] slots = new int[s];
-			for(int i = 0; i < c; i++) {
-				int choice = choices[i];
-				if(choice != -1) {
-					slots[choice]++;
-				}
-			}
-			for (int i = 0; i < s; i++) {
-				if(slots[i] == 0) {
-					emptySlots++;
-				} else if(slots[i] > 1) {
-					collisions+= slots[i];
+			int emptySlots = (int) (s - slots.occupied());
+			// All clients in slots with more than one client collide
+			int collisions = (int) (numActive - slots.singles());
+			int successfulReservations = s - emptySlots - collisions;
+			double data = (double) s / (double) successfulReservations;
+			roundD.add(collisions, 1, emptySlots, data);
+		}
+	}
+
+	/**
+	 * Samples the same statistics as {@link #schedule()} without storing the choice of any
+	 * client or slot. The clients choose one after another; each of them either takes a slot
+	 * that nobody chose so far, or joins an occupied slot. Only the number of occupied slots
+	 * and the number of slots with a single client are kept. The number of clients in a row
+	 * that take new slots is drawn at once, by inverting its distribution. Therefore, the cost
+	 * grows with the number of clients that join an occupied slot, and not with the number of
+	 * clients or slots. The statistics have exactly the same distribution as those of
+	 * {@link #schedule()}.
+	 */
+	public void scheduleDirect() {
+		int numActive = activity.sample(r, c);
+		// The number of occupied slots, and of slots that only one client chose
+		long occupied = 0;
+		long singles = 0;
+		long remaining = numActive;
+		while(remaining > 0) {
+			long run = newSlots(occupied, remaining);
+			occupied += run;
+			singles += run;
+			remaining -= run;
+			if(remaining > 0) {
+				// The next client chooses a random occupied slot
+				remaining--;
+				if(r.nextLong(occupied) < singles) {
+					singles--;
 				}
 			}
+		}
+
+		if(tracker.reportRound()) {
+			int emptySlots = (int) (s - occupied);
+			// All clients in slots with more than one client collide
+			int collisions = (int) (numActive - singles);
 			int successfulReservations = s - emptySlots - collisions;
 			double data = (double) s / (double) successfulReservations;
 			roundD.add(collisions, 1, emptySlots, data);
 		}
-	}	
-}
\ No newline at end of file
+	}
+
+	/**
+	 * Draws how many clients in a row choose a slot that nobody chose so far.
+	 * @param  occupied  The number of occupied slots
+	 * @param  remaining The number of clients that still need to choose
+	 * @return The length of the run, at most {@code remaining}
+	 */
+	private long newSlots(long occupied, long remaining) {
+		long free = s - occupied;
+		double logU = Math.log(1 - r.nextDouble());
+		// Find the longest run whose probability to happen is at least u. Runs
+		// are short once many slots are occupied, so the search gallops upwards
+		// from a run of 1 before it bisects.
+		long lo = 0;
+		long hi = Math.min(remaining, free);
+		for(long step = 1; lo < hi; step <<= 1) {
+			long next = Math.min(lo + step, hi);
+			if(logNewSlots(free, next) >= logU) {
+				lo = next;
+			} else {
+				hi = next - 1;
+				break;
+			}
+		}
+		while(lo < hi) {
+			long mid = (lo + hi + 1) >>> 1;
+			if(logNewSlots(free, mid) >= logU) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Computes the logarithm of the probability that the next k clients all choose
+	 * different slots among the free ones, i.e. ln(free! / ((free - k)! * s^k)).
+	 * For large factorials, Stirling's series is rearranged so that no large terms cancel.
+	 */
+	private double logNewSlots(long free, long k) {
+		long rest = free - k;
+		if(rest < STIRLING_MIN) {
+			long start = 0;
+			double log = 0;
+			if(free > STIRLING_MIN) {
+				start = free - STIRLING_MIN;
+				log = logNewSlots(free, start);
+			}
+			for(long i = start; i < k; i++) {
+				log += Math.log((double) (free - i) / (double) s);
+			}
+			return log;
+		}
+		double x = free + 1;
+		double y = rest + 1;
+		return (rest + 0.5) * Math.log(x / y)
+				+ k * Math.log(x / s)
+				- k
+				+ stirlingCorrection(x) - stirlingCorrection(y);
+	}
+
+	/**
+	 * @return The terms of Stirling's series for ln(Gamma(x)) after (x - 0.5) ln(x) - x + ln(2 pi) / 2
+	 */
+	private static double stirlingCorrection(double x) {
+		double x2 = x * x;
+		return (1d / 12d - (1d / 360d - 1d / (1260d * x2)) / x2) / x;
+	}
+}
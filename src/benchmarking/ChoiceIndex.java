@@ -0,0 +1,64 @@
+package benchmarking;
+
+import java.util.Arrays;
+
+/**
+ *	Counts the clients whose choice is at most a threshold, and sums up their choices.
+ *	The choices are kept sorted, along with the prefix sums of the sorted choices, so
+ *	that both are found by a binary search in O(log c). The index only takes space for
+ *	the choices, not for the slots, so the slot space can be arbitrarily large. Once it
+ *	is built, the index is only read, so it can be queried concurrently.
+ */
+final class ChoiceIndex {
+	// The sorted choices, and the number of choices
+	private final long[] sorted;
+	private int size;
+	// sums[i] is the sum of the i smallest choices
+	private final long[] sums;
+
+	/**
+	 * @param capacity The largest number of choices
+	 */
+	ChoiceIndex(int capacity) {
+		this.sorted = new long[capacity];
+		this.sums = new long[capacity + 1];
+	}
+
+	/**
+	 * Builds the index from the first n choices, replacing any previous content.
+	 * @param choices The choices
+	 * @param n       The number of choices
+	 */
+	void build(long[] choices, int n) {
+		System.arraycopy(choices, 0, sorted, 0, n);
+		Arrays.sort(sorted, 0, n);
+		size = n;
+		for(int i = 0; i < n; i++) {
+			sums[i + 1] = sums[i] + sorted[i];
+		}
+	}
+
+	/**
+	 * @return The number of choices that are at most the threshold
+	 */
+	long count(long threshold) {
+		// Find the first choice above the threshold
+		int lo = 0, hi = size;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(sorted[mid] <= threshold) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return The sum of the choices that are at most the threshold
+	 */
+	long sum(long threshold) {
+		return sums[(int) count(threshold)];
+	}
+}
@@ -0,0 +1,124 @@
+package benchmarking;
+
+/**
+ *	Samplers for the distributions that engines need beyond uniform draws.
+ *	All of them are exact, and their cost does not grow with the number
+ *	of trials, so that engines can sample aggregated outcomes of many
+ *	clients at once.
+ */
+public final class Distributions {
+	// Binomial draws with at most this many expected successes 
+	// are sampled by summing geometric waiting times
+	private static final double WAITING_TIME_LIMIT = 16;
+
+	private Distributions() {
+	}
+
+	/**
+	 * Draws the number of successes in n independent trials with success probability p.
+	 * Large draws are reduced to smaller ones by Knuth's method: the order statistic of rank
+	 * a among n uniform variables is Beta(a, n + 1 - a) distributed, and every variable
+	 * below it is a success with probability p / x. After O(log n) reductions, the remaining 
+	 * successes are counted by summing geometric waiting times between them.
+	 * @param  r The random source
+	 * @param  n The number of trials
+	 * @param  p The success probability
+	 * @return The number of successes
+	 */
+	public static long binomial(RandomSource r, long n, double p) {
+		if(n <= 0 || p <= 0) {
+			return 0;
+		} else if(p >= 1) {
+			return n;
+		} else if(p > 0.5) {
+			return n - binomial(r, n, 1 - p);
+		}
+		long successes = 0;
+		while(n * p > WAITING_TIME_LIMIT) {
+			long a = 1 + n / 2;
+			long b = n + 1 - a;
+			double x = beta(r, a, b);
+			if(x >= p) {
+				// All successes are among the a - 1 variables below x
+				n = a - 1;
+				p = p / x;
+			} else {
+				// The a variables up to x are all successes
+				successes += a;
+				n = b - 1;
+				p = (p - x) / (1 - x);
+			}
+			if(p >= 1) {
+				return successes + n;
+			}
+		}
+		long position = 0;
+		while(true) {
+			long gap = geometric(r, p);
+			if(gap >= n - position) {
+				return successes;
+			}
+			position += gap + 1;
+			successes++;
+		}
+	}
+
+	/**
+	 * Draws the number of failures before the first success in independent trials
+	 * with success probability p.
+	 */
+	public static long geometric(RandomSource r, double p) {
+		if(p >= 1) {
+			return 0;
+		}
+		double u = 1 - r.nextDouble();
+		double g = Math.floor(Math.log(u) / Math.log1p(-p));
+		return g >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) g;
+	}
+
+	/**
+	 * Draws a Beta(a, b) distributed value.
+	 */
+	public static double beta(RandomSource r, double a, double b) {
+		double x = gamma(r, a);
+		double y = gamma(r, b);
+		return x / (x + y);
+	}
+
+	/**
+	 * Draws a Gamma(shape, 1) distributed value with the method of Marsaglia and Tsang.
+	 */
+	public static double gamma(RandomSource r, double shape) {
+		if(shape < 1) {
+			// Boost the shape and correct with a uniform power
+			return gamma(r, shape + 1) * Math.pow(1 - r.nextDouble(), 1 / shape);
+		}
+		double d = shape - 1d / 3d;
+		double c = 1 / Math.sqrt(9 * d);
+		while(true) {
+			double x, v;
+			do {
+				x = gaussian(r);
+				v = 1 + c * x;
+			} while(v <= 0);
+			v = v * v * v;
+			double u = 1 - r.nextDouble();
+			if(u < 1 - 0.0331 * x * x * x * x || Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
+				return d * v;
+			}
+		}
+	}
+
+	/**
+	 * Draws a standard normally distributed value with the polar method.
+	 */
+	public static double gaussian(RandomSource r) {
+		double v1, v2, s;
+		do {
+			v1 = 2 * r.nextDouble() - 1;
+			v2 = 2 * r.nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while(s >= 1 || s == 0);
+		return v1 * Math.sqrt(-2 * Math.log(s) / s);
+	}
+}
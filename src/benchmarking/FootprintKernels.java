@@ -0,0 +1,187 @@
+package benchmarking;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *	The array kernels of footprint scheduling that operate on whole packed schedules:
+ *	superposing footprints, finding the lanes in which a schedule matches a client's
+ *	footprints, and finding the zero lanes of a schedule. The scalar kernels work on
+ *	one word at a time. The vector kernels use the incubating Vector API, which is only
+ *	available if the simulator was compiled and started with the jdk.incubator.vector
+ *	module; otherwise, they can not be loaded.
+ */
+public abstract class FootprintKernels {
+	// The name of the class that implements the vector kernels. It is loaded
+	// by name, so that this class does not depend on the incubator module.
+	private static final String VECTOR_KERNELS = "benchmarking.VectorKernels";
+
+	private static final FootprintKernels SCALAR = new ScalarKernels();
+	private static FootprintKernels vector;
+	private static boolean vectorLoaded;
+
+	/**
+	 * @return The kernels that work on one word at a time
+	 */
+	public static FootprintKernels scalar() {
+		return SCALAR;
+	}
+
+	/**
+	 * @return The kernels that use the Vector API, or null if the Vector API is not available
+	 */
+	public static synchronized FootprintKernels vector() {
+		if(!vectorLoaded) {
+			vectorLoaded = true;
+			try {
+				vector = (FootprintKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+			} catch(ReflectiveOperationException e) {
+				vector = null;
+			} catch(LinkageError e) {
+				// The incubator module is not present at runtime
+				vector = null;
+			}
+		}
+		return vector;
+	}
+
+	/**
+	 * @return The vector kernels if they are available, and the scalar kernels otherwise
+	 */
+	public static FootprintKernels best() {
+		FootprintKernels v = vector();
+		return v == null ? SCALAR : v;
+	}
+
+	/**
+	 * @return Kernels that run both the scalar kernels and the vector kernels, and fail
+	 * if their results differ, or null if the Vector API is not available
+	 */
+	public static FootprintKernels compare() {
+		FootprintKernels v = vector();
+		return v == null ? null : new ComparingKernels(SCALAR, v);
+	}
+
+	/**
+	 * @return A short name of these kernels
+	 */
+	public abstract String getName();
+
+	/**
+	 * @return The number of words on which different kernels were found to agree,
+	 * or -1 if these kernels do not compare their results
+	 */
+	public long getComparedWords() {
+		return -1;
+	}
+
+	/**
+	 * Superposes {@code words} words of {@code source}, starting at {@code offset}, onto {@code target}.
+	 */
+	abstract void superpose(long[] target, long[] source, int offset, int words);
+
+	/**
+	 * Finds the lanes in which a schedule equals a client's footprints.
+	 * @param layout     The layout of the schedule
+	 * @param schedule   The schedule
+	 * @param footprints The footprints of all clients
+	 * @param offset     The offset of the client's footprints
+	 * @param matches    Receives the highest bit of every matching lane, see {@link PackedSlots#zeroLanes(long)}
+	 */
+	abstract void matchLanes(PackedSlots layout, long[] schedule, long[] footprints, int offset, long[] matches);
+
+	/**
+	 * Finds the zero lanes of a schedule that represent a slot.
+	 * @param layout   The layout of the schedule
+	 * @param schedule The schedule
+	 * @param free     Receives the highest bit of every zero lane
+	 */
+	abstract void zeroLanes(PackedSlots layout, long[] schedule, long[] free);
+
+	private static final class ScalarKernels extends FootprintKernels {
+		@Override
+		public String getName() {
+			return "scalar";
+		}
+
+		@Override
+		void superpose(long[] target, long[] source, int offset, int words) {
+			for(int k = 0; k < words; k++) {
+				target[k] ^= source[offset + k];
+			}
+		}
+
+		@Override
+		void matchLanes(PackedSlots layout, long[] schedule, long[] footprints, int offset, long[] matches) {
+			for(int k = 0; k < layout.words; k++) {
+				matches[k] = layout.zeroLanes(schedule[k] ^ footprints[offset + k]);
+			}
+		}
+
+		@Override
+		void zeroLanes(PackedSlots layout, long[] schedule, long[] free) {
+			for(int k = 0; k < layout.words; k++) {
+				free[k] = layout.zeroLanes(schedule[k]) & layout.validLanes(k);
+			}
+		}
+	}
+
+	/**
+	 * Runs a reference implementation next to the tested one, and compares their results.
+	 * The results of the tested implementation are used from then on.
+	 */
+	private static final class ComparingKernels extends FootprintKernels {
+		private final FootprintKernels reference, tested;
+		private final AtomicLong comparedWords = new AtomicLong();
+
+		private ComparingKernels(FootprintKernels reference, FootprintKernels tested) {
+			this.reference = reference;
+			this.tested = tested;
+		}
+
+		@Override
+		public String getName() {
+			return reference.getName() + " vs. " + tested.getName();
+		}
+
+		@Override
+		public long getComparedWords() {
+			return comparedWords.get();
+		}
+
+		@Override
+		void superpose(long[] target, long[] source, int offset, int words) {
+			long[] expected = new long[words];
+			System.arraycopy(target, 0, expected, 0, words);
+			reference.superpose(expected, source, offset, words);
+			tested.superpose(target, source, offset, words);
+			check("superpose", expected, target, words);
+		}
+
+		@Override
+		void matchLanes(PackedSlots layout, long[] schedule, long[] footprints, int offset, long[] matches) {
+			long[] expected = new long[layout.words];
+			reference.matchLanes(layout, schedule, footprints, offset, expected);
+			tested.matchLanes(layout, schedule, footprints, offset, matches);
+			check("matchLanes", expected, matches, layout.words);
+		}
+
+		@Override
+		void zeroLanes(PackedSlots layout, long[] schedule, long[] free) {
+			long[] expected = new long[layout.words];
+			reference.zeroLanes(layout, schedule, expected);
+			tested.zeroLanes(layout, schedule, free);
+			check("zeroLanes", expected, free, layout.words);
+		}
+
+		private void check(String kernel, long[] expected, long[] actual, int words) {
+			for(int k = 0; k < words; k++) {
+				if(expected[k] != actual[k]) {
+					throw new IllegalStateException("The " + kernel + " kernel of " + tested.getName() + " differs from "
+							+ reference.getName() + " in word " + k + ": " + Long.toHexString(actual[k]) + " instead of "
+							+ Long.toHexString(expected[k]));
+				}
+			}
+			comparedWords.addAndGet(words);
+		}
+	}
+}
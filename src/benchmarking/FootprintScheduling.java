@@ -1,19 +1,21 @@
 package benchmarking;
 
-import java.util.Random;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import tracking.StatisticsTracker;
 import tracking.ReservationDataset;
 import tracking.RoundDataset;
 
 public class FootprintScheduling {
-	private Random r;
+	private RandomSource r;
 	private int c;
 	private int s;
 	private int b;
 	private int rounds;
-	private double a;
+	// Decides how many clients are active in each sample
+	private final ActivitySampler activity;
 	private boolean stopOnConvergence;
 	
 	// The withdraw behaviour to be used
@@ -23,8 +25,48 @@ public class FootprintScheduling {
 	private StatisticsTracker tracker;
 	private RoundDataset roundData;
 
-	// Sentinel values for choices
-	private int INACTIVE = -2, WITHDRAWN = -1;
+	// Sentinel value for a client that withdrew
+	private int WITHDRAWN = -1;
+
+	// The layout of footprints within the schedule
+	private final PackedSlots layout;
+
+	// The number of words of a bitset that holds one bit per slot
+	private final int choiceWords;
+
+	// Buffers of scheduleMultiple that are reused across rounds and samples.
+	// The schedules are double-buffered, and the footprints and reservations
+	// of active client i start at i * layout.words and i * choiceWords, respectively.
+	// Reservations are bitsets, see SlotBits.
+	private long[] schedule, nextSchedule;
+	private long[] footprints;
+	private long[] choices, nextChoices;
+	// The slots that are reserved by at least one and by more than one client
+	private long[] occupied, collided;
+
+	// The free slots of the schedule of the current round, as a list of
+	// numFree slots and as a bitset. freeLanes flags the zero lanes of the schedule.
+	private int[] freeSlots;
+	private long[] freeBits;
+	private long[] freeLanes;
+	private int numFree;
+
+	// The kernels that superpose and compare whole schedules
+	private final FootprintKernels kernels;
+
+	// The number of random draws from the free slots before a moving
+	// client counts the free slots that it may move to
+	private static final int FREE_SLOT_ATTEMPTS = 4;
+
+	// The largest number of bits per footprint
+	public static final int MAX_BITS = PackedSlots.MAX_BITS;
+
+	// The pool that updates the partitions of active clients in parallel,
+	// or null if all clients are updated on the calling thread
+	private final ForkJoinPool pool;
+	private Partition[] partitions;
+	// Runs all partitions on the pool
+	private AllPartitions allPartitions;
 
 	public enum WithdrawBehaviour {
 		Static, Linear, Reactive;
@@ -35,52 +77,59 @@ public class FootprintScheduling {
 		}
 	}
 
-	public FootprintScheduling(int numSamples, int numClients, int numSlots, int numRounds, int numBits, double activity, 
+	public FootprintScheduling(int numSamples, int numClients, int numSlots, int numRounds, int numBits, ActivitySampler activity, 
 			boolean stopOnConvergence, WithdrawBehaviour withdrawBehaviour, double percentage, StatisticsTracker tracker, 
-			RoundDataset roundData) {
+			RoundDataset roundData, ForkJoinPool pool, FootprintKernels kernels, RandomSource random) {
 		this.roundData = roundData;
 		this.c = numClients;
 		this.s = numSlots;
 		this.b = numBits;
 		this.rounds = numRounds;
-		this.a = activity;
+		this.activity = activity;
 		this.withdrawBehaviour = withdrawBehaviour;
 		this.percentage = percentage;
 		this.tracker = tracker;
 		this.stopOnConvergence = stopOnConvergence;
+		checkBits(numBits);
+		this.layout = new PackedSlots(s, b);
+		this.choiceWords = SlotBits.words(s);
+		this.pool = pool;
+		this.kernels = kernels;
 		
-		r = new Random();
+		r = random;
 	}
 
-	public void scheduleSingle() {
-		if(b > 8) {
-			System.out.println("More than 8 bits per slot are not supported");
-			return;
+	/**
+	 * @throws IllegalArgumentException If footprints can not have the given number of bits
+	 */
+	public static void checkBits(int numBits) {
+		if(numBits < 1 || numBits > MAX_BITS) {
+			throw new IllegalArgumentException("Only 1 to " + MAX_BITS + " bits per slot are supported, not " + numBits);
 		}
+	}
+
+	public void scheduleSingle() {
 		boolean succeeded = false;
 		int requiredRounds = rounds;
 
-		// A convenient schedule array
-		byte[] schedule = new byte[s];
+		// The schedule, with one footprint lane per slot
+		long[] schedule = new long[layout.words];
 
-		// An array for the clients to store their footprints in
-		byte[] footprints = new byte[c];
-
-		// Keeps track of reservations per client
-		int[] choices = new int[c];
+		// Only the first numActive clients participate. The footprints and
+		// reservations of the clients that still take part are kept in the
+		// first numLive entries, so that inactive and withdrawn clients cost nothing.
+		int numActive = activity.sample(r, c);
+		int numLive = numActive;
+		long[] footprints = new long[numActive];
+		int[] choices = new int[numActive];
 		// int countA = 0, countI = 0;
-		int numActive = (int) (a * (double) c);
-		for(int i = 0; i < c; i++) {
+		for(int i = 0; i < numActive; i++) {
 			// A client participates if there is a pending package that 
 			// has not yet been sent, or if this client is randomly chosen
 			// based on the activity rate.
-			if(i < numActive) {
-				choices[i] = r.nextInt(s);
-				footprints[i] = getFootprint(b);
-				schedule[choices[i]] ^= footprints[i];
-			} else {
-				choices[i] = INACTIVE;
-			}
+			choices[i] = r.nextInt(s);
+			footprints[i] = layout.footprint(r);
+			layout.xor(schedule, 0, choices[i], footprints[i]);
 		}
 		// System.out.println("Activity rate: " + a);
 		// System.out.println("Active/Inactive: " + countA + '/' + countI);
@@ -88,19 +137,22 @@ public class FootprintScheduling {
 		for (int round = 0; round < rounds; round++) {	
 			// System.out.println("Schedule is: " + Arrays.toString(schedule));
 			// System.out.println("Choices are: " + Arrays.toString(choices));
-			byte[] nextSchedule = new byte[s];
-			for (int cl = 0; cl < c; cl++) {
-				if(choices[cl] == INACTIVE) continue;
+			indexFreeSlots(schedule);
+			long[] nextSchedule = new long[layout.words];
+			int live = 0;
+			for (int cl = 0; cl < numLive; cl++) {
 				int choice = chooseSingle(schedule, choices[cl], footprints[cl], round == rounds - 1);
-				footprints[cl] = getFootprint(b);
 				if(choice != WITHDRAWN) {
-					footprints[cl] = getFootprint(b);
-					nextSchedule[choice] ^= footprints[cl];
+					// Move the client down to close the gaps of withdrawn clients
+					footprints[live] = layout.footprint(r);
+					layout.xor(nextSchedule, 0, choice, footprints[live]);
+					choices[live] = choice;
+					live++;
 				}
-				choices[cl] = choice;
 			}
+			numLive = live;
 			schedule = nextSchedule;
-			int collisions = numCollisionsSingle(choices);
+			int collisions = numCollisionsSingle(choices, numLive);
 			if(collisions == 0) {
 				if(!succeeded) {
 					// update # required rounds:
@@ -118,8 +170,7 @@ public class FootprintScheduling {
 			int emptySlots = 0;
 			int collisions = 0;
 			int[] slots = new int[s];
-			for(int i = 0; i < c; i++) {
-				if(choices[i] == INACTIVE || choices[i] == WITHDRAWN) continue;
+			for(int i = 0; i < numLive; i++) {
 				slots[choices[i]]++;
 			}
 			for(int i = 0; i < s; i++) {
@@ -131,21 +182,17 @@ public class FootprintScheduling {
 			}	
 			// The amount of data that each client sent in this scheduling cycle
 			int successfulReservations = s - emptySlots - collisions;
-			double data = (double) (b*s*rounds) / (double) successfulReservations;
+			double data = (double) b * s * rounds / (double) successfulReservations;
 			roundData.add(collisions, requiredRounds, emptySlots, data);
 		}		
 	}
 
-	private int chooseSingle(byte[] schedule, int lastChoice, byte footprint, boolean lastRound) {
-		// A client that is already in withdrawn state will not
-		// attempt to re-enter the scheduling
-		if(lastChoice == WITHDRAWN) {
-			return WITHDRAWN;
-		} 
-
+	private int chooseSingle(long[] schedule, int lastChoice, long footprint, boolean lastRound) {
+		// A client that is already in withdrawn state will not attempt to
+		// re-enter the scheduling, so it is no longer passed to this method.
 		// From here on we can assume that slot i was a slot
 		// that we were trying to reserve
-		if(schedule[lastChoice] == footprint) {
+		if(layout.get(schedule, 0, lastChoice) == footprint) {
 			// If there's no collision, we will keep reserving this slot.
 			return lastChoice;
 		} else if(lastRound) {
@@ -153,31 +200,23 @@ public class FootprintScheduling {
 			return WITHDRAWN;
 		} else {
 			// There was a collision
-			if(withdraw()) {
+			if(withdraw(r)) {
 				return WITHDRAWN;
 			} else {
 				if(r.nextDouble() < 0.5) {
 					return lastChoice;
 				} else {
-					// Determine the free slots
-					int numFree = 0;
-					int[] freeSlots = new int[s];
-					for(int j =0; j < s; j++) {
-						// Scan current schedule for free slots
-						// and prevent that we 'move' to a slot
-						// that we're currently trying to reserve.
-						if(schedule[j] == 0 && lastChoice != j) {
-							// Keep that slot in mind
-							freeSlots[numFree] = j;
-							numFree++;
-						}
-					}
-					
-					if(numFree == 0) {
+					// Prevent that we 'move' to a slot
+					// that we're currently trying to reserve.
+					boolean excluded = SlotBits.get(freeBits, 0, lastChoice);
+					int numEligible = excluded ? numFree - 1 : numFree;
+					if(numEligible == 0) {
 						return WITHDRAWN;
 					} else {
 						// We will now try to reserve a random free slot instead of slot i.
-						return freeSlots[r.nextInt(numFree)];
+						// If our own slot is free, it is never drawn in place of the last free slot.
+						int j = freeSlots[r.nextInt(numEligible)];
+						return (excluded && j == lastChoice) ? freeSlots[numFree - 1] : j;
 					}
 				}
 			}
@@ -185,60 +224,34 @@ public class FootprintScheduling {
 	}
 
 	public void scheduleMultiple() {
-		if(b > 8) {
-			System.out.println("More than 8 bits per slot are not supported");
-			return;
-		}
 		boolean succeeded = false;
 		int requiredRounds = rounds;
 
-		// A convenient schedule array
-		byte[] schedule = new byte[s];
+		// Only the first numActive clients participate, so that all
+		// per-client buffers can be sized and indexed by active clients.
+		int numActive = activity.sample(r, c);
+		allocateMultiple(numActive);
 
-		// An array for the clients to store their footprints in
-		byte[][] footprints = new byte[c][];
-
-		// Keeps track of reservations per client
-		boolean[][] choices = new boolean[c][];
-		// int countA = 0, countI = 0;
-		int numActive = (int) (a * (double) c);
-		for(int i = 0; i < c; i++) {
-			// A client participates if there is a pending package that 
-			// has not yet been sent, or if this client is randomly chosen
-			// based on the activity rate.
-			if(i < numActive) {
-				choices[i] = new boolean[s];
-				footprints[i] = new byte[s];
-				for (int j = 0; j < s; j++) {
-					choices[i][j] = true;
-					footprints[i][j] = getFootprint(b);
-					schedule[j] ^= footprints[i][j];
-				}
-			} else {
-				choices[i] = null;
-			}
+		// Split the active clients across the partitions. Every partition
+		// draws from its own random stream, which is split from r in place.
+		for(int p = 0; p < partitions.length; p++) {
+			partitions[p].from = (int) ((long) numActive * p / partitions.length);
+			partitions[p].to = (int) ((long) numActive * (p + 1) / partitions.length);
+			r.split(partitions[p].r);
 		}
-		// System.out.println("Activity rate: " + a);
-		// System.out.println("Active/Inactive: " + countA + '/' + countI);
+		runPartitions(-1);
 		
 		for (int round = 0; round < rounds; round++) {	
-			// System.out.println("Schedule is: " + Arrays.toString(schedule));
-			// System.out.println("Choices are: " + Arrays.toString(choices));
-			byte[] nextSchedule = new byte[s];
-			for (int cl = 0; cl < c; cl++) {
-				if(choices[cl] == null) continue;
-				boolean[] choice = chooseMultiple(schedule, choices[cl], footprints[cl], round == rounds - 1);
-				for (int i = 0; i < s; i++) {
-					footprints[cl][i] = getFootprint(b);
-					if(choice[i]) {
-						nextSchedule[i] ^= footprints[cl][i];
-					}
-				}
-				choices[cl] = choice;
-			}
+			runPartitions(round);
+			// Swap the buffers of this round and the next one
+			long[] tmpSchedule = schedule;
 			schedule = nextSchedule;
-			int collisions = numCollisionsMultiple(choices);
-			if(collisions == 0) {
+			nextSchedule = tmpSchedule;
+			long[] tmpChoices = choices;
+			choices = nextChoices;
+			nextChoices = tmpChoices;
+
+			if(SlotBits.count(collided, 0, choiceWords) == 0) {
 				if(!succeeded) {
 					// update # required rounds:
 					requiredRounds = round + 1;
@@ -252,93 +265,272 @@ public class FootprintScheduling {
 		}
 
 		if(tracker.reportRound()) {
-			int emptySlots = 0;
-			int collisions = 0;
-			int[] slots = new int[s];
-			for(int i = 0; i < c; i++) {
-				if(choices[i] == null) continue;
-				for (int j = 0; j < s; j++) {
-					if(choices[i][j]) {
-						slots[j]++;
-					}
-				}
-			}
-			for(int i = 0; i < s; i++) {
-				if(slots[i] == 0) {
-					emptySlots++;
-				} else if(slots[i] > 1) {
-					collisions++;
-				}
-			}	
+			// occupied and collided still describe the reservations of the last round
+			int emptySlots = s - SlotBits.count(occupied, 0, choiceWords);
+			int collisions = SlotBits.count(collided, 0, choiceWords);
 			// The amount of data that each client sent in this scheduling cycle
 			int successfulReservations = s - emptySlots - collisions;
-			double data = (double) (b*s*rounds) / (double) successfulReservations;
+			double data = (double) b * s * rounds / (double) successfulReservations;
 			roundData.add(collisions, requiredRounds, emptySlots, data);
 		}		
 	}
 
-	private boolean[] chooseMultiple(byte[] schedule, boolean[] lastChoice, byte[] footprint, boolean lastRound) {
-		// A client that is already in withdrawn state will not
-		// attempt to re-enter the scheduling
-		if(lastChoice == null) {
-			return null;
-		} 
-		// The new choices that we'll return in the end.
-		// The boolean array will initially contain nothing but
-		// 'false' values.
-		boolean[] newChoice = new boolean[s];
-		
-		// Check how to proceed for each slot separately
-		for (int i = 0; i < s; i++) {
+	/**
+	 * Makes sure that the buffers of scheduleMultiple can hold the given number of
+	 * active clients. The buffers are kept across samples, so that the scheduling
+	 * itself does not allocate any memory once they have been sized.
+	 */
+	private void allocateMultiple(int numActive) {
+		if(schedule == null) {
+			schedule = new long[layout.words];
+			nextSchedule = new long[layout.words];
+			occupied = new long[choiceWords];
+			collided = new long[choiceWords];
+			partitions = new Partition[pool == null ? 1 : pool.getParallelism()];
+			for(int p = 0; p < partitions.length; p++) {
+				partitions[p] = new Partition();
+			}
+			allPartitions = new AllPartitions();
+		}
+		if(choices == null || choices.length < numActive * choiceWords) {
+			footprints = new long[numActive * layout.words];
+			choices = new long[numActive * choiceWords];
+			nextChoices = new long[numActive * choiceWords];
+		}
+	}
+
+	/**
+	 * Lets all partitions process their clients, either on the pool or on this
+	 * thread, and combines their results: the partial schedules are superposed 
+	 * into the schedule of the next round, or into the current schedule after 
+	 * the initial reservations. The occupancy of all partitions is merged into
+	 * {@code occupied} and {@code collided}.
+	 * @param round The current round, or -1 for the initial reservations
+	 */
+	private void runPartitions(int round) {
+		if(round >= 0) {
+			indexFreeSlots(schedule);
+		}
+		for(int p = 0; p < partitions.length; p++) {
+			partitions[p].reinitialize();
+			partitions[p].round = round;
+		}
+		if(partitions.length == 1) {
+			partitions[0].invoke();
+		} else {
+			allPartitions.reinitialize();
+			pool.invoke(allPartitions);
+		}
+
+		long[] target = round < 0 ? schedule : nextSchedule;
+		Arrays.fill(target, 0L);
+		Arrays.fill(occupied, 0L);
+		Arrays.fill(collided, 0L);
+		for(Partition partition: partitions) {
+			kernels.superpose(target, partition.schedule, 0, layout.words);
+			for(int k = 0; k < choiceWords; k++) {
+				collided[k] |= partition.collided[k] | (occupied[k] & partition.occupied[k]);
+				occupied[k] |= partition.occupied[k];
+			}
+		}
+	}
+
+	/**
+	 * Collects the free slots of a schedule, i.e. all slots whose lane is zero, into
+	 * {@code freeSlots} and {@code freeBits}. The free slots are the same for all clients
+	 * of a round, so this happens once per round rather than once per moving client.
+	 */
+	private void indexFreeSlots(long[] schedule) {
+		if(freeSlots == null) {
+			freeSlots = new int[s];
+			freeBits = new long[choiceWords];
+			freeLanes = new long[layout.words];
+		}
+		Arrays.fill(freeBits, 0L);
+		numFree = 0;
+		kernels.zeroLanes(layout, schedule, freeLanes);
+		for(int k = 0; k < layout.words; k++) {
+			long free = freeLanes[k];
+			while(free != 0) {
+				int j = layout.slot(k, Long.numberOfTrailingZeros(free));
+				free &= free - 1;
+				freeSlots[numFree] = j;
+				numFree++;
+				SlotBits.set(freeBits, 0, j);
+			}
+		}
+	}
+
+	/**
+	 * Runs all partitions of a round on the pool. It is created once per
+	 * scheduler and reinitialized for every round.
+	 */
+	private class AllPartitions extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void compute() {
+			invokeAll(partitions);
+		}
+	}
+
+	/**
+	 * A contiguous range of active clients that are updated together in every round.
+	 * Each partition owns a random stream, a partial schedule that only contains the 
+	 * footprints of its own clients, and scratch space, so that partitions can run 
+	 * concurrently. They only read the shared schedule, and only write the footprints 
+	 * and reservations of their own clients.
+	 */
+	private class Partition extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		// The stream is split from the scheduler's stream in place before every sample
+		private final RandomSource r = RandomSource.create(0);
+		// The range of active clients [from, to) of this partition. Clients
+		// that withdraw from all slots are removed from the end of the range.
+		private int from, to;
+		// The current round, or -1 for the initial reservations
+		private int round;
+		// The superposition of the footprints of this partition's clients
+		private final long[] schedule = new long[layout.words];
+		// The slots reserved by at least one and by more than one of this partition's clients
+		private final long[] occupied = new long[choiceWords];
+		private final long[] collided = new long[choiceWords];
+		// The lanes in which the schedule matches a client's footprints
+		private final long[] matches = new long[layout.words];
+
+		@Override
+		protected void compute() {
+			int words = layout.words;
+			Arrays.fill(schedule, 0L);
+			for(int cl = from; cl < to; ) {
+				int offset = cl * words;
+				int choiceOffset = cl * choiceWords;
+				long[] reservations;
+				if(round < 0) {
+					// A client participates if there is a pending package that 
+					// has not yet been sent, or if this client is randomly chosen
+					// based on the activity rate.
+					reservations = choices;
+					SlotBits.fill(reservations, choiceOffset, s);
+				} else {
+					// Compare the schedule with all of our footprints, one word at a time
+					kernels.matchLanes(layout, FootprintScheduling.this.schedule, footprints, offset, matches);
+					reservations = nextChoices;
+					chooseMultiple(choiceOffset, round == rounds - 1);
+					if(SlotBits.isEmpty(reservations, choiceOffset, choiceWords)) {
+						// The client withdrew from all slots and will not return. Replace it
+						// with the last client of this partition, which is processed next.
+						to--;
+						System.arraycopy(choices, to * choiceWords, choices, choiceOffset, choiceWords);
+						System.arraycopy(footprints, to * words, footprints, offset, words);
+						continue;
+					}
+				}
+				// Draw new footprints for the slots that we keep reserving.
+				// All other lanes stay zero, so that whole words can be superposed.
+				Arrays.fill(footprints, offset, offset + words, 0L);
+				for (int k = 0; k < choiceWords; k++) {
+					long reserved = reservations[choiceOffset + k];
+					while(reserved != 0) {
+						int i = (k << 6) + Long.numberOfTrailingZeros(reserved);
+						reserved &= reserved - 1;
+						layout.xor(footprints, offset, i, layout.footprint(r));
+					}
+				}
+				kernels.superpose(schedule, footprints, offset, words);
+				cl++;
+			}
+			SlotBits.superpose(round < 0 ? choices : nextChoices, from, to, choiceWords, occupied, collided);
+		}
+
+		/**
+		 * Decides which slots a client will try to reserve in the next round, based on the
+		 * lanes in which the schedule matched its footprints. The client's reservations are read
+		 * from {@code choices} and its new reservations are written to {@code nextChoices}, both
+		 * at the given offset.
+		 */
+		private void chooseMultiple(int offset, boolean lastRound) {
+			// The new choices that we'll set in the end.
+			// The slots of this client will initially contain nothing but
+			// 'false' values.
+			Arrays.fill(nextChoices, offset, offset + choiceWords, 0L);
+			
+			// Check how to proceed for each slot separately.
 			// We can just skip those slots that we're not
 			// trying to reserve.
-			if(!lastChoice[i]) continue;
+			for (int k = 0; k < choiceWords; k++) {
+				long reserved = choices[offset + k];
+				while(reserved != 0) {
+					int i = (k << 6) + Long.numberOfTrailingZeros(reserved);
+					reserved &= reserved - 1;
+					chooseSlot(offset, i, lastRound);
+				}
+			}
+		}
 
-			// From here on we can assume that slot i was a slot
-			// that we were trying to reserve
-			if(schedule[i] == footprint[i]) {
+		/**
+		 * Decides how a client proceeds with slot i, which it tried to reserve in the last round.
+		 */
+		private void chooseSlot(int offset, int i, boolean lastRound) {
+			if(layout.isSet(matches, 0, i)) {
 				// If there's no collision, we will keep reserving this slot.
-				newChoice[i] = true;
-			} else if(lastRound) {
-				// There was a collision and there's no time left to try more things
-				newChoice[i] = false;
+				SlotBits.set(nextChoices, offset, i);
+			} else if(lastRound || withdraw(r)) {
+				// There was a collision and there's either no time left to try 
+				// more things, or we withdraw from this slot.
+				return;
+			} else if(r.nextDouble() < 0.5) {
+				SlotBits.set(nextChoices, offset, i);
 			} else {
-				// There was a collision
-				if(withdraw()) {
-					newChoice[i] = false;
-				} else {
-					if(r.nextDouble() < 0.5) {
-						newChoice[i] = true;
-					} else {
-						// Determine the free slots
-						int numFree = 0;
-						int[] freeSlots = new int[s];
-						for(int j =0; j < s; j++) {
-							// Scan current schedule for free slots
-							// and prevent that we 'move' to a slot
-							// that we're currently trying to reserve.
-							if(schedule[j] == 0 && !lastChoice[j] && !newChoice[j]) {
-								// Keep that slot in mind
-								freeSlots[numFree] = j;
-								numFree++;
-							}
-						}
-						
-						if(numFree == 0) {
-							newChoice[i] = false;
-						} else {
-							// We will now try to reserve a random free slot instead of slot i.
-							newChoice[freeSlots[r.nextInt(numFree)]] = true;
-							// For the record, newChoice[i] will be 'false' automatically.
-						}
-					}
+				// We will now try to reserve a random free slot instead of slot i.
+				int j = drawFreeSlot(offset);
+				if(j >= 0) {
+					SlotBits.set(nextChoices, offset, j);
+				}
+				// For the record, slot i will not be reserved anymore.
+			}
+		}
+
+		/**
+		 * Draws a uniformly random free slot that the client is neither trying to reserve
+		 * in this round nor in the next one. Usually, a few random draws from the free slots
+		 * of this round find such a slot. If they don't, the eligible slots are counted, and 
+		 * a random one is selected by its rank. Both ways yield every eligible slot with the
+		 * same probability.
+		 * @return The slot, or -1 if there is no eligible slot
+		 */
+		private int drawFreeSlot(int offset) {
+			if(numFree == 0) {
+				return -1;
+			}
+			for(int attempt = 0; attempt < FREE_SLOT_ATTEMPTS; attempt++) {
+				int j = freeSlots[r.nextInt(numFree)];
+				if(!SlotBits.get(choices, offset, j) && !SlotBits.get(nextChoices, offset, j)) {
+					return j;
+				}
+			}
+			int numEligible = 0;
+			for(int k = 0; k < choiceWords; k++) {
+				numEligible += Long.bitCount(freeBits[k] & ~choices[offset + k] & ~nextChoices[offset + k]);
+			}
+			if(numEligible == 0) {
+				return -1;
+			}
+			int rank = r.nextInt(numEligible);
+			for(int k = 0; k < choiceWords; k++) {
+				long eligible = freeBits[k] & ~choices[offset + k] & ~nextChoices[offset + k];
+				int count = Long.bitCount(eligible);
+				if(rank < count) {
+					return (k << 6) + SlotBits.select(eligible, rank);
 				}
+				rank -= count;
 			}
+			throw new IllegalStateException("The rank of a free slot exceeds the number of free slots");
 		}
-		return newChoice;
 	}
 
-	private boolean withdraw() {
+	private boolean withdraw(RandomSource r) {
 		double chance = getChance();
 		if(chance < 0) {
 			chance = 0;
@@ -352,18 +544,12 @@ public class FootprintScheduling {
 		return percentage;
 	}
 
-	private byte getFootprint(int b) {
-		byte f = (byte) (r.nextInt((1 << b) - 1) + 1);
-		return f;
-	}
-
-	private int numCollisionsSingle(int[] choices) {
+	private int numCollisionsSingle(int[] choices, int numLive) {
 		int collisions = 0;
 		int[] slots = new int[s];
 		Arrays.fill(slots, WITHDRAWN);
-		for(int i = 0; i < c; i++) {
+		for(int i = 0; i < numLive; i++) {
 			int choice = choices[i];
-			if(choice == WITHDRAWN || choice == INACTIVE) continue;
 			
 			if(slots[choice] != WITHDRAWN) {
 				// client i tried to reserve slot j, 
@@ -378,29 +564,4 @@ public class FootprintScheduling {
 		}
 		return collisions;
 	}
-
-	private int numCollisionsMultiple(boolean[][] choices) {
-		int collisions = 0;
-		int[] slots = new int[s];
-		Arrays.fill(slots, WITHDRAWN);
-		for(int i = 0; i < c; i++) {
-			boolean[] choice = choices[i];
-			if(choice == null) continue;
-			for (int j = 0; j < s; j++) {
-				if(choice[j]) {
-					if(slots[j] != WITHDRAWN) {
-						// client i tried to reserve slot j, 
-						// but it was already occupied by another client.
-						collisions++;
-					} else {
-						// markt hat client i was reserving this slot.
-						// The exact identity does not matter, it just needs
-						// to be indistinguishable from an un-occupied slot.
-						slots[j] = i;
-					}
-				}
-			}
-		}
-		return collisions;
-	}
 }
\ No newline at end of file
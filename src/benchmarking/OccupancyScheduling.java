@@ -0,0 +1,280 @@
+package benchmarking;
+
+import java.util.Arrays;
+
+import tracking.StatisticsTracker;
+import tracking.RoundDataset;
+
+/**
+ *	A mean-field variant of footprint scheduling. Instead of tracking every client, it only
+ *	tracks how many clients contend for each slot. In every round, the outcome of a slot is
+ *	sampled from its number of contenders: how many of them find their own footprint in the
+ *	superposed schedule, how many withdraw, stay or move, and whether the slot looks free.
+ *	All moving clients are spread over the free slots that they do not reserve yet.
+ *	The cost of a round therefore depends on the number of slots, but not on the number of clients.
+ *
+ *	With a single slot per client, a client only reserves the slot that it leaves, so this is
+ *	exact. With multiple slots per client, a free slot with n contenders is assumed to be reserved
+ *	by a moving client with probability n / a, where a is the number of active clients. Slots with
+ *	more than {@link #EXACT_CONTENDERS} contenders are sampled in the limit of many contenders,
+ *	where the superposition is uniformly distributed.
+ */
+public class OccupancyScheduling {
+	// Slots with up to this many contenders are superposed from explicit footprints
+	static final int EXACT_CONTENDERS = 16;
+
+	private RandomSource r;
+	private int c;
+	private int s;
+	private int b;
+	private int rounds;
+	// Decides how many clients are active in each sample
+	private final ActivitySampler activity;
+	private boolean stopOnConvergence;
+	private final double percentage;
+
+	private StatisticsTracker tracker;
+	private RoundDataset roundData;
+
+	// The number of clients that try to reserve each slot,
+	// in the current round and in the next one
+	private long[] contenders, nextContenders;
+	// The slots that look free in the current schedule, and the number of
+	// clients that move away from each of them
+	private int[] freeSlots;
+	private long[] leaving;
+	// The number of active clients, and whether every one of them
+	// initially reserves every slot
+	private long numActive;
+	private boolean multiple;
+	// Scratch space for the footprints of the contenders of a slot
+	private final long[] footprints = new long[EXACT_CONTENDERS];
+
+	// Whether the last call to superpose resulted in an empty slot
+	private boolean superposedZero;
+
+	public OccupancyScheduling(int numSamples, int numClients, int numSlots, int numRounds, int numBits, ActivitySampler activity,
+			boolean stopOnConvergence, double percentage, StatisticsTracker tracker, RoundDataset roundData, RandomSource random) {
+		FootprintScheduling.checkBits(numBits);
+		this.roundData = roundData;
+		this.c = numClients;
+		this.s = numSlots;
+		this.b = numBits;
+		this.rounds = numRounds;
+		this.activity = activity;
+		this.percentage = percentage;
+		this.tracker = tracker;
+		this.stopOnConvergence = stopOnConvergence;
+
+		contenders = new long[s];
+		nextContenders = new long[s];
+		freeSlots = new int[s];
+		leaving = new long[s];
+
+		r = random;
+	}
+
+	/**
+	 * Every active client tries to reserve a single, random slot.
+	 */
+	public void scheduleSingle() {
+		numActive = activity.sample(r, c);
+		multiple = false;
+		// Spread the active clients uniformly over all slots
+		long remaining = numActive;
+		for(int j = 0; j < s; j++) {
+			contenders[j] = Distributions.binomial(r, remaining, 1d / (double) (s - j));
+			remaining -= contenders[j];
+		}
+		schedule();
+	}
+
+	/**
+	 * Every active client initially tries to reserve every slot.
+	 */
+	public void scheduleMultiple() {
+		numActive = activity.sample(r, c);
+		multiple = true;
+		Arrays.fill(contenders, numActive);
+		schedule();
+	}
+
+	private void schedule() {
+		boolean succeeded = false;
+		int requiredRounds = rounds;
+		double chance = Math.min(Math.max(percentage, 0), 1);
+
+		for (int round = 0; round < rounds; round++) {
+			boolean lastRound = round == rounds - 1;
+			int numFree = 0;
+			// Clients that move away from slots that do not look free
+			long movers = 0;
+			for(int j = 0; j < s; j++) {
+				long n = contenders[j];
+				if(n == 0) {
+					leaving[numFree] = 0;
+					freeSlots[numFree++] = j;
+					nextContenders[j] = 0;
+					continue;
+				}
+				// Contenders that find their footprint keep reserving the slot
+				long stay = superpose(n);
+				long move = 0;
+				long unmatched = n - stay;
+				if(!lastRound && unmatched > 0) {
+					// Unmatched contenders withdraw, keep trying, or move to a free slot
+					long remaining = unmatched - Distributions.binomial(r, unmatched, chance);
+					long keep = Distributions.binomial(r, remaining, 0.5);
+					stay += keep;
+					move = remaining - keep;
+				}
+				if(superposedZero && !multiple) {
+					leaving[numFree] = move;
+					freeSlots[numFree++] = j;
+				} else {
+					if(superposedZero) {
+						leaving[numFree] = 0;
+						freeSlots[numFree++] = j;
+					}
+					movers += move;
+				}
+				nextContenders[j] = stay;
+			}
+			spreadMovers(numFree, movers);
+
+			long[] tmp = contenders;
+			contenders = nextContenders;
+			nextContenders = tmp;
+
+			if(countCollisions() == 0) {
+				if(!succeeded) {
+					// update # required rounds:
+					requiredRounds = round + 1;
+				}
+				succeeded = true;
+				if (stopOnConvergence) break;
+			} else {
+				requiredRounds = rounds;
+				succeeded = false;
+			}
+		}
+
+		if(tracker.reportRound()) {
+			int emptySlots = 0;
+			int collisions = countCollisions();
+			for(int j = 0; j < s; j++) {
+				if(contenders[j] == 0) {
+					emptySlots++;
+				}
+			}
+			// The amount of data that each client sent in this scheduling cycle
+			int successfulReservations = s - emptySlots - collisions;
+			double data = (double) b * s * rounds / (double) successfulReservations;
+			roundData.add(collisions, requiredRounds, emptySlots, data);
+		}
+	}
+
+	/**
+	 * Spreads the moving clients uniformly over the free slots that they do not reserve yet;
+	 * clients without any such slot withdraw. With a single slot per client, a client that
+	 * leaves a free slot may move to any other free slot. The free slots are then visited in
+	 * order, and the arrivals at each of them are drawn from three groups of clients that are
+	 * still unassigned: those that left a slot that does not look free, those that left a free
+	 * slot that has already been visited, and those that left a free slot that is yet to come
+	 * and that can therefore not be chosen by them. With multiple slots per client, a free slot
+	 * is chosen with a probability that is proportional to the chance that a client does not
+	 * reserve it yet.
+	 * @param numFree The number of free slots in {@code freeSlots}
+	 * @param movers  The number of clients that left slots that do not look free, or any
+	 * slot with multiple slots per client
+	 */
+	private void spreadMovers(int numFree, long movers) {
+		if(multiple) {
+			double weights = 0;
+			double excluded = 1;
+			for(int t = 0; t < numFree; t++) {
+				double reserved = (double) contenders[freeSlots[t]] / (double) numActive;
+				weights += 1 - reserved;
+				excluded *= reserved;
+			}
+			// Clients that already reserve all free slots withdraw
+			movers -= Distributions.binomial(r, movers, excluded);
+			for(int t = 0; t < numFree && movers > 0; t++) {
+				double weight = 1 - (double) contenders[freeSlots[t]] / (double) numActive;
+				long arrivals = Distributions.binomial(r, movers, weights > weight ? weight / weights : 1);
+				nextContenders[freeSlots[t]] += arrivals;
+				movers -= arrivals;
+				weights -= weight;
+			}
+			return;
+		}
+		long upcoming = 0;
+		for(int t = 0; t < numFree; t++) {
+			upcoming += leaving[t];
+		}
+		long visited = 0;
+		for(int t = 0; t < numFree; t++) {
+			upcoming -= leaving[t];
+			long arrivals = Distributions.binomial(r, movers, 1d / (double) (numFree - t));
+			movers -= arrivals;
+			long fromVisited = Distributions.binomial(r, visited, 1d / (double) (numFree - t));
+			visited -= fromVisited;
+			long fromUpcoming = 0;
+			if(t < numFree - 1) {
+				fromUpcoming = Distributions.binomial(r, upcoming, 1d / (double) (numFree - t - 1));
+				upcoming -= fromUpcoming;
+			}
+			nextContenders[freeSlots[t]] += arrivals + fromVisited + fromUpcoming;
+			visited += leaving[t];
+		}
+	}
+
+	/**
+	 * Superposes the footprints of n contenders of a slot. Sets {@code superposedZero}
+	 * if the superposition is zero, so that the slot looks free.
+	 * @param  n The number of contenders, at least 1
+	 * @return The number of contenders whose footprint equals the superposition
+	 */
+	private long superpose(long n) {
+		if(b == 1) {
+			// All footprints are 1
+			superposedZero = (n & 1) == 0;
+			return superposedZero ? 0 : n;
+		} else if(n <= EXACT_CONTENDERS) {
+			long sum = 0;
+			for(int i = 0; i < n; i++) {
+				footprints[i] = PackedSlots.footprint(r, b);
+				sum ^= footprints[i];
+			}
+			long matches = 0;
+			for(int i = 0; i < n; i++) {
+				if(footprints[i] == sum) {
+					matches++;
+				}
+			}
+			superposedZero = sum == 0;
+			return matches;
+		} else {
+			// The superposition of many footprints is uniformly distributed,
+			// and each footprint matches it with probability 1 / (2^b - 1)
+			superposedZero = r.nextDouble() < Math.scalb(1d, -b);
+			if(superposedZero) {
+				return 0;
+			}
+			return Distributions.binomial(r, n, 1d / (Math.scalb(1d, b) - 1d));
+		}
+	}
+
+	/**
+	 * @return The number of slots with more than one contender
+	 */
+	private int countCollisions() {
+		int collisions = 0;
+		for(int j = 0; j < s; j++) {
+			if(contenders[j] > 1) {
+				collisions++;
+			}
+		}
+		return collisions;
+	}
+}
@@ -0,0 +1,60 @@
+package benchmarking;
+
+import java.util.Arrays;
+
+/**
+ *	Tells for every slot whether no client, a single client or multiple clients chose it,
+ *	using two bits per slot. Slot i is stored in bits 2 * (i % 32) and 2 * (i % 32) + 1 of word
+ *	i / 32. Lanes count 0, 1 and 2, and saturate at 2. The table can be summarized with
+ *	one popcount per word for each statistic.
+ */
+final class OccupancyTable {
+	// The lower bit of every lane
+	private static final long LOW_BITS = 0x5555555555555555L;
+
+	private final long[] table;
+
+	OccupancyTable(int slots) {
+		this.table = new long[(slots + 31) >>> 5];
+	}
+
+	/**
+	 * Marks all slots as empty.
+	 */
+	void clear() {
+		Arrays.fill(table, 0L);
+	}
+
+	/**
+	 * Adds a client to a slot.
+	 */
+	void add(int slot) {
+		int k = slot >>> 5;
+		long low = 1L << ((slot & 31) << 1);
+		long w = table[k];
+		// Lanes at 2 have their higher bit set, which stops the increment
+		table[k] = w + (low & ~(w >>> 1));
+	}
+
+	/**
+	 * @return The number of slots that at least one client chose
+	 */
+	long occupied() {
+		long occupied = 0;
+		for(long w: table) {
+			occupied += Long.bitCount((w | (w >>> 1)) & LOW_BITS);
+		}
+		return occupied;
+	}
+
+	/**
+	 * @return The number of slots that exactly one client chose
+	 */
+	long singles() {
+		long singles = 0;
+		for(long w: table) {
+			singles += Long.bitCount(w & ~(w >>> 1) & LOW_BITS);
+		}
+		return singles;
+	}
+}
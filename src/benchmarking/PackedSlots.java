@@ -0,0 +1,154 @@
+package benchmarking;
+
+/**
+ *	Describes how the footprints of a schedule are packed into {@code long} words.
+ *	Every slot occupies one lane whose width is the smallest power of two that can
+ *	hold a footprint, so that a lane never straddles two words. With 2-bit footprints,
+ *	32 slots share one word, while 64-bit footprints use one word per slot.
+ */
+final class PackedSlots {
+	// The largest supported footprint size
+	static final int MAX_BITS = 64;
+
+	// The number of slots
+	final int slots;
+	// The number of bits per footprint
+	final int bits;
+	// The width of a lane, and its base 2 logarithm
+	final int laneWidth, laneShift;
+	// The number of lanes per word, and its base 2 logarithm
+	final int lanesPerWord, wordShift;
+	// The number of words that are needed to store one lane per slot
+	final int words;
+	// The bits of the lowest lane in a word
+	final long laneMask;
+	// The highest bit of each lane, and all remaining bits
+	final long highBits, lowBits;
+	// The highest bits of those lanes in the last word that represent a slot
+	final long lastWordMask;
+
+	/**
+	 * Computes the packing for a schedule.
+	 * @param  slots The number of slots in the schedule
+	 * @param  bits  The number of bits per footprint, between 1 and {@link #MAX_BITS}
+	 */
+	PackedSlots(int slots, int bits) {
+		if(bits < 1 || bits > MAX_BITS) {
+			throw new IllegalArgumentException("Footprints must have between 1 and " + MAX_BITS + " bits");
+		}
+		this.slots = slots;
+		this.bits = bits;
+
+		int shift = 0;
+		while((1 << shift) < bits) {
+			shift++;
+		}
+		this.laneShift = shift;
+		this.laneWidth = 1 << shift;
+		this.wordShift = 6 - shift;
+		this.lanesPerWord = 1 << wordShift;
+		this.words = (slots + lanesPerWord - 1) >>> wordShift;
+		this.laneMask = laneWidth == 64 ? -1L : (1L << laneWidth) - 1;
+
+		long high = 0;
+		for(int i = 0; i < lanesPerWord; i++) {
+			high |= 1L << ((i << laneShift) + laneWidth - 1);
+		}
+		this.highBits = high;
+		this.lowBits = ~high;
+
+		int lastLanes = slots - ((words - 1) << wordShift);
+		long last = 0;
+		for(int i = 0; i < lastLanes; i++) {
+			last |= 1L << ((i << laneShift) + laneWidth - 1);
+		}
+		this.lastWordMask = last;
+	}
+
+	/**
+	 * @return The index of the word that holds the lane of the given slot
+	 */
+	int word(int slot) {
+		return slot >>> wordShift;
+	}
+
+	/**
+	 * @return The position of the lowest bit of the lane of the given slot
+	 */
+	int shift(int slot) {
+		return (slot & (lanesPerWord - 1)) << laneShift;
+	}
+
+	/**
+	 * Translates a bit of a lane mask (as returned by {@link #zeroLanes(long)})
+	 * back into the slot that it represents.
+	 * @param  word The index of the word within the schedule
+	 * @param  bit  The position of a set bit within that word
+	 * @return      The slot whose lane contains that bit
+	 */
+	int slot(int word, int bit) {
+		return (word << wordShift) | (bit >>> laneShift);
+	}
+
+	/**
+	 * @return The footprint in the lane of the given slot
+	 */
+	long get(long[] packed, int offset, int slot) {
+		return (packed[offset + word(slot)] >>> shift(slot)) & laneMask;
+	}
+
+	/**
+	 * Superposes a footprint onto the lane of the given slot.
+	 */
+	void xor(long[] packed, int offset, int slot, long footprint) {
+		packed[offset + word(slot)] ^= footprint << shift(slot);
+	}
+
+	/**
+	 * Checks whether the lane of the given slot is flagged in a lane mask.
+	 */
+	boolean isSet(long[] laneMask, int offset, int slot) {
+		return ((laneMask[offset + word(slot)] >>> (shift(slot) + laneWidth - 1)) & 1L) != 0;
+	}
+
+	/**
+	 * Finds all lanes of a word that are zero. Adding the lower bits of every lane
+	 * to their maximum carries into the highest bit of the lane unless they are all
+	 * zero, and this carry never crosses into the next lane.
+	 * @param  x A packed word
+	 * @return   A word in which the highest bit of every zero lane of x is set
+	 */
+	long zeroLanes(long x) {
+		return ~(((x & lowBits) + lowBits) | x | lowBits);
+	}
+
+	/**
+	 * @return A mask of the highest bits of all lanes in the given word that represent a slot
+	 */
+	long validLanes(int word) {
+		return word == words - 1 ? lastWordMask : highBits;
+	}
+
+	/**
+	 * Draws a random footprint. Footprints are never zero,
+	 * so that a reserved slot can not look empty on its own.
+	 */
+	long footprint(RandomSource r) {
+		return footprint(r, bits);
+	}
+
+	/**
+	 * Draws a random, non-zero footprint of the given number of bits.
+	 */
+	static long footprint(RandomSource r, int bits) {
+		if(bits < 32) {
+			return r.nextInt((1 << bits) - 1) + 1;
+		}
+		long max = bits == 64 ? -1L : (1L << bits) - 1;
+		long f;
+		do {
+			f = r.nextLong() & max;
+		} while(f == 0);
+		return f;
+	}
+}
@@ -1,24 +1,37 @@
 package benchmarking;
 
-import java.util.Random;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import tracking.StatisticsTracker;
 import tracking.RoundDataset;
 
 public class PfitzmannScheduling {
-	private Random r;
+	private RandomSource r;
 	// The number of clients
 	private int c;
 	// The number of slots
-	private int s;
-	// The percentage of active (i.e. sending) clients
-	private double a;
+	private long s;
+	// Decides how many clients are active (i.e. sending)
+	private final ActivitySampler activity;
 	// The size of one message
 	private int msgSize;
-	// The slot that each client chose
+	// The slot that each active client chose. Only the first
+	// numActive entries are used, so that inactive clients cost nothing.
 	private long[] choices;
-	private long[] schedule;
+	private int numActive;
+	// The choices of all active clients, sorted
+	private ChoiceIndex index;
+
+	// The pool on which independent intervals are resolved in parallel,
+	// or null if all intervals are resolved on the calling thread
+	private final ForkJoinPool pool;
+	// Intervals with at least this many clients are resolved on the pool
+	private static final long PARALLEL_COUNT = 1 << 12;
+	// Resolves the intervals of a schedule, reused across samples
+	private Deduction deduction;
 
 	// Statistical data
 	private int requiredRounds = 0;
@@ -29,19 +42,22 @@ public class PfitzmannScheduling {
 
 	public PfitzmannScheduling(	int numSamples, 
 								int numClients, 
-								int numSlots, 
-								double activity, 
+								long numSlots, 
+								ActivitySampler activity, 
 								StatisticsTracker tracker,
-								RoundDataset roundData) {
+								RoundDataset roundData,
+								ForkJoinPool pool,
+								RandomSource random) {
 		this.c = numClients;
 		this.s = numSlots;
-		this.a = activity;
+		this.activity = activity;
 		this.tracker = tracker;
 		this.roundData = roundData;
+		this.pool = pool;
 		// Calculate size of each message
 		// according to Pfitzmann's description
 		msgSize = 1;
-		long alphabet = (long) c * (long) s;
+		long alphabet = (long) c * s;
 		while(alphabet > 0) {
 			alphabet >>=1;
 			msgSize++;
@@ -51,80 +67,125 @@ public class PfitzmannScheduling {
 		// Round up to full bytes
 		// msgSize += (8-(msgSize%8));
 		
-		r = new Random();
+		r = random;
 	}
 
 	public void schedule() {
 		requiredRounds = 0;
 		//Assure that at least one client wants to send something
-		int start = 0;
-		while(start == 0) {
+		if(choices == null) {
 			choices = new long[c];
-			schedule = new long[s];
-			for(int i = 0; i < c; i++) {
-				if(r.nextDouble() < a) {
-					// Add 1 to avoid that stations schedule slot 0
-					choices[i] = (long) r.nextInt(s) + 1;
-					start = 1;
-				} else {
-					choices[i] = -1;
-				}
-			}
+			index = new ChoiceIndex(c);
+			deduction = new Deduction();
+		}
+		do {
+			numActive = activity.sample(r, c);
+		} while(numActive == 0);
+		for(int i = 0; i < numActive; i++) {
+			// Add 1 to avoid that stations schedule slot 0
+			choices[i] = r.nextLong(s) + 1;
 		}
+		index.build(choices, numActive);
 		
-		long[] outcome = send(s);
-		deduce(outcome[0], outcome[1]);
+		// In the first round, all active clients send
+		requiredRounds = 1;
+		deduction.reinitialize();
+		deduction.push(0, index.sum(s), index.count(s));
+		if(pool == null) {
+			deduction.invoke();
+		} else {
+			pool.invoke(deduction);
+		}
+		requiredRounds += deduction.rounds;
 
 		if(tracker.reportRound()) {
-			int emptySlots = 0;
-			int collisions = 0;
-			for(int i = 0; i < s; i++) {
-				if(schedule[i]==0) {
-					emptySlots++;
-				} else if(schedule[i] > 1) {
-					collisions++;
-				}
-			}
-			int successfulReservations = s - collisions - emptySlots;
+			// Every slot is resolved at most once, so the resolved slots need not be stored
+			long emptySlots = s - deduction.occupied;
+			int collisions = deduction.collided;
+			long successfulReservations = s - collisions - emptySlots;
 			double data = (double) (requiredRounds * msgSize) / (double) successfulReservations;
 			roundData.add(collisions, requiredRounds, emptySlots, data);
 		}
 		
 	}
 
-	private void deduce(long sum, long count) {
-		if(count == 1) {
-			schedule[(int) sum-1]++;
-			return;
-		} else {
-			long avg = sum / count;
-			long[] outcome = send(avg);
-			long newSum = outcome[0];
-			long newCount = outcome[1];
-			if(newSum == sum && newCount == count) {
-				assert(sum % count == 0);
-				long slot = sum/count;
-				schedule[(int) slot-1] += count;
-			} else {
-				deduce(newSum, newCount);
-				sum -= newSum;
-				count -= newCount;
-				deduce(sum, count);
+	/**
+	 * Resolves intervals of choices. An interval (lo, sum, count) holds the choices above slot lo
+	 * that are still unresolved, with the given sum and count. Its clients send again if their
+	 * choice is at most the average of the interval, which splits it into a lower and an upper
+	 * interval. Since all choices up to lo are resolved before the interval is split, every round
+	 * only involves the choices in (lo, average], and its outcome can be read from the index.
+	 * The intervals are kept on an explicit stack, lower intervals first, and large upper
+	 * intervals are resolved on the pool, if there is one. Each split takes exactly one round,
+	 * independently of the order in which intervals are resolved.
+	 */
+	private class Deduction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		// The stack of intervals, three entries per interval
+		private long[] stack = new long[3 * 64];
+		private int size;
+		// The number of rounds taken by this task and all tasks that it forked
+		private int rounds;
+		// The number of slots that were resolved by this task and all tasks that it
+		// forked, and the number of those slots that more than one client chose
+		private long occupied;
+		private int collided;
+		// The tasks that this task forked
+		private final ArrayList<Deduction> forked = new ArrayList<Deduction>();
+
+		private void push(long lo, long sum, long count) {
+			if(size == stack.length) {
+				stack = Arrays.copyOf(stack, 2 * size);
 			}
+			stack[size++] = lo;
+			stack[size++] = sum;
+			stack[size++] = count;
 		}
-	}
 
-	private long[] send(long avgThreshold) {
-		requiredRounds++;
-		long sum = 0;
-		long count = 0;
-		for(int i = 0; i < c; i++) {
-			if(choices[i] == -1) continue;
-			if(schedule[(int) choices[i] - 1 ] == 0 && choices[i] <= avgThreshold) {
-				sum += choices[i];
-				count++;
+		@Override
+		protected void compute() {
+			rounds = 0;
+			occupied = 0;
+			collided = 0;
+			forked.clear();
+			while(size > 0) {
+				long count = stack[--size];
+				long sum = stack[--size];
+				long lo = stack[--size];
+				if(count == 1) {
+					occupied++;
+					continue;
+				}
+				long avg = sum / count;
+				rounds++;
+				long newSum = index.sum(avg) - index.sum(lo);
+				long newCount = index.count(avg) - index.count(lo);
+				if(newSum == sum && newCount == count) {
+					// All clients of the interval chose the same slot
+					assert(sum % count == 0);
+					occupied++;
+					collided++;
+				} else {
+					// The upper interval can only be resolved after the lower one
+					// on this stack, or independently of it on the pool
+					if(pool != null && count - newCount >= PARALLEL_COUNT) {
+						Deduction upper = new Deduction();
+						upper.push(avg, sum - newSum, count - newCount);
+						upper.fork();
+						forked.add(upper);
+					} else {
+						push(avg, sum - newSum, count - newCount);
+					}
+					push(lo, newSum, newCount);
+				}
+			}
+			for(Deduction upper: forked) {
+				upper.join();
+				rounds += upper.rounds;
+				occupied += upper.occupied;
+				collided += upper.collided;
 			}
 		}
-		return new long[]{sum, count};
 	}
-}
\ No newline at end of file
+}
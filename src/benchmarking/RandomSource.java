@@ -0,0 +1,119 @@
+package benchmarking;
+
+import java.util.Arrays;
+
+/**
+ *	A source of random numbers for the scheduling engines. Unlike
+ *	{@link java.util.Random}, implementations are not thread-safe and
+ *	therefore do not synchronize; every thread needs its own source.
+ *	Sources can be seeded, and they can be split into independent child
+ *	streams in a deterministic way, e.g. for parallel workers.
+ */
+public abstract class RandomSource {
+
+	/**
+	 * Creates the default source for a given seed.
+	 * Sources that were created with the same seed produce the same numbers.
+	 */
+	public static RandomSource create(long seed) {
+		return new SplitMixRandom(seed);
+	}
+
+	/**
+	 * Creates the default source with a seed that differs between calls and runs.
+	 */
+	public static RandomSource create() {
+		return new SplitMixRandom(SplitMixRandom.mix64(System.nanoTime()) ^ System.currentTimeMillis());
+	}
+
+	/**
+	 * Recreates a source from its state, e.g. to continue a stream in a later run.
+	 * @param state The state of a source, as returned by {@link #getState()}
+	 */
+	public static RandomSource restore(long[] state) {
+		if(state.length != 2) {
+			throw new IllegalArgumentException("Not the state of a random source: " + Arrays.toString(state));
+		}
+		return new SplitMixRandom(state[0], state[1]);
+	}
+
+	/**
+	 * @return The state of this source, from which {@link #restore(long[])}
+	 * creates a source that continues with the same numbers
+	 */
+	public abstract long[] getState();
+
+	/**
+	 * @return A uniformly distributed long value
+	 */
+	public abstract long nextLong();
+
+	/**
+	 * Creates a new source that is statistically independent of this one. This
+	 * advances the state of this source, so that consecutive calls return
+	 * different streams, and a source that was created with a fixed seed 
+	 * always returns the same sequence of streams.
+	 */
+	public abstract RandomSource split();
+
+	/**
+	 * Turns a source into a new stream that is split from this one, without
+	 * allocating. Afterwards, it produces the same numbers as the stream that
+	 * {@link #split()} would have returned instead.
+	 * @param child A source that was created by {@link #create(long)} or by
+	 * splitting, whose previous stream is discarded
+	 */
+	public abstract void split(RandomSource child);
+
+	/**
+	 * @return A uniformly distributed int value
+	 */
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	/**
+	 * @param  bound The upper bound (exclusive). Must be positive.
+	 * @return A uniformly distributed int value between 0 (inclusive) and bound (exclusive)
+	 */
+	public int nextInt(int bound) {
+		if(bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		int r = nextInt();
+		int m = bound - 1;
+		if((bound & m) == 0) {
+			// The bound is a power of two
+			return r & m;
+		}
+		// Reject values from the incomplete last interval of the int range
+		for(int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1);
+		return r;
+	}
+
+	/**
+	 * @param  bound The upper bound (exclusive). Must be positive.
+	 * @return A uniformly distributed long value between 0 (inclusive) and bound (exclusive)
+	 */
+	public long nextLong(long bound) {
+		if(bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		long r = nextLong();
+		long m = bound - 1;
+		if((bound & m) == 0) {
+			// The bound is a power of two
+			return r & m;
+		}
+		// Reject values from the incomplete last interval of the long range
+		for(long u = r >>> 1; u + m - (r = u % bound) < 0; u = nextLong() >>> 1);
+		return r;
+	}
+
+	/**
+	 * @return A uniformly distributed double value between 0 (inclusive) and 1 (exclusive)
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+}
@@ -0,0 +1,91 @@
+package benchmarking;
+
+/**
+ *	Static helpers for sets of slots that are stored as bitsets,
+ *	with slot i in bit (i % 64) of word (i / 64).
+ */
+final class SlotBits {
+
+	private SlotBits() {
+	}
+
+	/**
+	 * @return The number of words needed to hold a set of the given number of slots
+	 */
+	static int words(int slots) {
+		return (slots + 63) >>> 6;
+	}
+
+	static boolean get(long[] set, int offset, int slot) {
+		return (set[offset + (slot >>> 6)] & (1L << slot)) != 0;
+	}
+
+	static void set(long[] set, int offset, int slot) {
+		set[offset + (slot >>> 6)] |= 1L << slot;
+	}
+
+	/**
+	 * Sets the first {@code slots} bits of a set, and clears the remaining bits of its last word.
+	 */
+	static void fill(long[] set, int offset, int slots) {
+		int words = words(slots);
+		for(int k = 0; k < words - 1; k++) {
+			set[offset + k] = -1L;
+		}
+		int rest = slots - ((words - 1) << 6);
+		set[offset + words - 1] = rest == 64 ? -1L : (1L << rest) - 1;
+	}
+
+	/**
+	 * @return The position of the set bit of x that has the given rank, counting from the lowest bit
+	 */
+	static int select(long x, int rank) {
+		for(int i = 0; i < rank; i++) {
+			x &= x - 1;
+		}
+		return Long.numberOfTrailingZeros(x);
+	}
+
+	static boolean isEmpty(long[] set, int offset, int words) {
+		for(int k = 0; k < words; k++) {
+			if(set[offset + k] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int count(long[] set, int offset, int words) {
+		int count = 0;
+		for(int k = 0; k < words; k++) {
+			count += Long.bitCount(set[offset + k]);
+		}
+		return count;
+	}
+
+	/**
+	 * Superposes a number of consecutive sets. Afterwards, {@code seen} contains all
+	 * slots that appear in at least one of the sets, and {@code twice} contains all
+	 * slots that appear in two or more of them.
+	 * @param sets  The sets, each of them {@code words} long
+	 * @param from  The index of the first set
+	 * @param to    The index after the last set
+	 * @param words The number of words per set
+	 * @param seen  Receives the union of all sets
+	 * @param twice Receives the slots that are contained in more than one set
+	 */
+	static void superpose(long[] sets, int from, int to, int words, long[] seen, long[] twice) {
+		for(int k = 0; k < words; k++) {
+			seen[k] = 0;
+			twice[k] = 0;
+		}
+		for(int i = from; i < to; i++) {
+			int offset = i * words;
+			for(int k = 0; k < words; k++) {
+				long x = sets[offset + k];
+				twice[k] |= seen[k] & x;
+				seen[k] |= x;
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package benchmarking;
+
+/**
+ *	The default random source. This is the SplitMix64 generator that
+ *	also backs {@link java.util.SplittableRandom}: the state is advanced
+ *	by an odd constant (gamma), and every output is a bijective mix of 
+ *	the state. Child streams get a different gamma.
+ */
+final class SplitMixRandom extends RandomSource {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long seed;
+	private long gamma;
+
+	SplitMixRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	SplitMixRandom(long seed, long gamma) {
+		if((gamma & 1L) == 0) {
+			throw new IllegalArgumentException("The gamma of a stream must be odd");
+		}
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	@Override
+	public long[] getState() {
+		return new long[] {seed, gamma};
+	}
+
+	@Override
+	public long nextLong() {
+		return mix64(seed += gamma);
+	}
+
+	@Override
+	public RandomSource split() {
+		return new SplitMixRandom(nextLong(), mixGamma(seed += gamma));
+	}
+
+	@Override
+	public void split(RandomSource child) {
+		SplitMixRandom c = (SplitMixRandom) child;
+		long childSeed = nextLong();
+		c.gamma = mixGamma(seed += gamma);
+		c.seed = childSeed;
+	}
+
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Derives an odd gamma with enough bit transitions from a state.
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
@@ -0,0 +1,73 @@
+package benchmarking;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ *	Footprint kernels that process as many words at once as the preferred vector
+ *	shape of the platform allows, e.g. 8 words with AVX-512. The remaining words
+ *	are processed one at a time. This class needs the jdk.incubator.vector module,
+ *	and is only loaded by {@link FootprintKernels#vector()}.
+ */
+final class VectorKernels extends FootprintKernels {
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+	VectorKernels() {
+		// Fail early, rather than in the middle of a benchmark,
+		// if the Vector API can not be used on this platform
+		LongVector.zero(SPECIES);
+	}
+
+	@Override
+	public String getName() {
+		return "vector (" + SPECIES.length() + " words)";
+	}
+
+	@Override
+	void superpose(long[] target, long[] source, int offset, int words) {
+		int k = 0;
+		for(int bound = SPECIES.loopBound(words); k < bound; k += SPECIES.length()) {
+			LongVector.fromArray(SPECIES, target, k)
+					.lanewise(VectorOperators.XOR, LongVector.fromArray(SPECIES, source, offset + k))
+					.intoArray(target, k);
+		}
+		for(; k < words; k++) {
+			target[k] ^= source[offset + k];
+		}
+	}
+
+	@Override
+	void matchLanes(PackedSlots layout, long[] schedule, long[] footprints, int offset, long[] matches) {
+		int words = layout.words;
+		int k = 0;
+		for(int bound = SPECIES.loopBound(words); k < bound; k += SPECIES.length()) {
+			LongVector x = LongVector.fromArray(SPECIES, schedule, k)
+					.lanewise(VectorOperators.XOR, LongVector.fromArray(SPECIES, footprints, offset + k));
+			zeroLanes(layout, x).intoArray(matches, k);
+		}
+		for(; k < words; k++) {
+			matches[k] = layout.zeroLanes(schedule[k] ^ footprints[offset + k]);
+		}
+	}
+
+	@Override
+	void zeroLanes(PackedSlots layout, long[] schedule, long[] free) {
+		// All but the last word only contain lanes that represent a slot
+		int words = layout.words - 1;
+		int k = 0;
+		for(int bound = SPECIES.loopBound(words); k < bound; k += SPECIES.length()) {
+			zeroLanes(layout, LongVector.fromArray(SPECIES, schedule, k)).and(layout.highBits).intoArray(free, k);
+		}
+		for(; k <= words; k++) {
+			free[k] = layout.zeroLanes(schedule[k]) & layout.validLanes(k);
+		}
+	}
+
+	/**
+	 * The vector form of {@link PackedSlots#zeroLanes(long)}.
+	 */
+	private static LongVector zeroLanes(PackedSlots layout, LongVector x) {
+		return x.and(layout.lowBits).add(layout.lowBits).or(x).or(layout.lowBits).not();
+	}
+}
@@ -0,0 +1,62 @@
+package cli;
+
+import tracking.SummaryStatistics;
+
+/**
+ *	Decides how many samples a configuration needs, based on the samples it has taken so far.
+ *	A configuration is precise enough once the 95% confidence interval of its mean data per
+ *	client is narrower than a fraction of the mean on each side. Every configuration takes at
+ *	least a minimum and at most a maximum number of samples.
+ *	With a budget, all configurations of a command first take the minimum number of samples.
+ *	The rest of the budget is then spread across them in proportion to the samples they still
+ *	need, which grows with the variance of their data.
+ */
+final class AdaptiveSampling {
+	// The quantile of the standard normal distribution at 97.5%
+	private static final double Z = 1.959964;
+
+	final double precision;
+	final int minSamples, maxSamples;
+	// The number of samples that all configurations of a command take together,
+	// or 0 if they are unlimited
+	final long budget;
+
+	/**
+	 * @param precision  The largest half width of the confidence interval, relative to the mean
+	 * @param minSamples The smallest number of samples per configuration, at least 2
+	 * @param maxSamples The largest number of samples per configuration
+	 * @param budget     The number of samples of all configurations of a command, or 0
+	 */
+	AdaptiveSampling(double precision, int minSamples, int maxSamples, long budget) {
+		this.precision = precision;
+		this.minSamples = Math.max(minSamples, 2);
+		this.maxSamples = Math.max(maxSamples, this.minSamples);
+		this.budget = budget;
+	}
+
+	/**
+	 * @param  data The data of a configuration
+	 * @return The number of samples, between the minimum and the maximum, with which
+	 * the data would be precise enough if its mean and variance stayed the same
+	 */
+	int requiredSamples(SummaryStatistics data) {
+		double variance = data.getVariance();
+		if(Double.isNaN(variance)) {
+			return minSamples;
+		}
+		if(variance == 0d) {
+			return (int) Math.max(data.getCount(), minSamples);
+		}
+		// The half width of the confidence interval is Z * sd / sqrt(n)
+		double width = precision * Math.abs(data.getMean()) / Z;
+		double required = variance / (width * width);
+		return (int) Math.max(minSamples, Math.min(maxSamples, Math.ceil(required)));
+	}
+
+	@Override
+	public String toString() {
+		return "until the 95% confidence interval of the data is within " + precision * 100 + "% of the mean, "
+			+ "with " + minSamples + " to " + maxSamples + " samples per configuration"
+			+ (budget > 0 ? " and " + budget + " samples per command" : "");
+	}
+}
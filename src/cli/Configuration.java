@@ -0,0 +1,141 @@
+package cli;
+
+import benchmarking.RandomSource;
+
+import tracking.RoundDataset;
+import tracking.StatisticsTracker;
+
+/**
+ *	A single point of a benchmark, e.g. footprint scheduling with a given number of clients.
+ *	Its samples are recorded in one dataset and taken with one random stream. They can be
+ *	taken in several batches, e.g. until the data of the configuration is precise enough.
+ */
+final class Configuration {
+	/**
+	 * The longest time in milliseconds between two checkpoints of a cached configuration,
+	 * unless a single sample takes longer
+	 */
+	private static final long CHECKPOINT_INTERVAL = 60000;
+
+	/**
+	 * Describes the configuration in the output of its benchmark
+	 */
+	final String label;
+
+	final RoundDataset dataset;
+
+	/**
+	 * Counts the samples of all batches
+	 */
+	final StatisticsTracker tracker = new StatisticsTracker(0);
+
+	/**
+	 * A rough estimate of the time that one sample takes, in arbitrary units,
+	 * by which configurations are compared when they are scheduled
+	 */
+	final double cost;
+
+	/**
+	 * Everything that determines the samples of the configuration, including the
+	 * state of its random stream, or null if its samples can not be reproduced
+	 */
+	final String parameters;
+
+	private RandomSource random;
+	private SampleRunner.Factory factory;
+
+	// The cache entry that the samples are checkpointed to, or null
+	private ResultCache.Entry cacheEntry;
+
+	/**
+	 * @param label      Describes the configuration in the output of its benchmark
+	 * @param dataset    The dataset that the samples are recorded in
+	 * @param random     The random stream of the configuration
+	 * @param cost       A rough estimate of the time that one sample takes
+	 * @param parameters Everything that determines the samples apart from the random stream,
+	 * or null if the random stream is not seeded
+	 */
+	Configuration(String label, RoundDataset dataset, RandomSource random, double cost, String parameters) {
+		this.label = label;
+		this.dataset = dataset;
+		this.random = random;
+		this.cost = cost;
+		if(parameters != null) {
+			long[] state = random.getState();
+			this.parameters = parameters + " stream=" + Long.toHexString(state[0]) + ":" + Long.toHexString(state[1]);
+		} else {
+			this.parameters = null;
+		}
+	}
+
+	/**
+	 * @param factory Creates the samplers, which report to the tracker
+	 * of this configuration and record in its dataset
+	 */
+	void setFactory(SampleRunner.Factory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return The number of samples that have been taken
+	 */
+	int getSamples() {
+		return tracker.getObservations();
+	}
+
+	/**
+	 * @return The current state of the random stream
+	 */
+	long[] getRandomState() {
+		return random.getState();
+	}
+
+	/**
+	 * Continues where a previous run of this configuration stopped. Its
+	 * records must have been added to the dataset before.
+	 * @param samples The number of samples that the previous run took
+	 * @param state   The state of the random stream after these samples
+	 */
+	void restore(int samples, long[] state) {
+		tracker.skip(samples);
+		random = RandomSource.restore(state);
+	}
+
+	/**
+	 * @param entry The cache entry that subsequent samples are checkpointed to, or null
+	 */
+	void checkpointTo(ResultCache.Entry entry) {
+		this.cacheEntry = entry;
+	}
+
+	/**
+	 * Takes another batch of samples. The random stream continues where the
+	 * previous batch stopped, so that batches never repeat a sample.
+	 * If the configuration is cached, the batch is split into parts that take
+	 * about CHECKPOINT_INTERVAL each, and every part is checkpointed.
+	 * @param runner  Takes the samples
+	 * @param samples The number of samples, or 0 or less to take none
+	 */
+	void sample(SampleRunner runner, int samples) {
+		if(cacheEntry == null) {
+			if(samples > 0) {
+				tracker.extend(samples);
+				runner.run(tracker, random, factory);
+			}
+			return;
+		}
+		// The first part is a single sample, which estimates the time per sample
+		int part = 1;
+		int total = getSamples() + samples;
+		while(samples > 0) {
+			part = Math.min(part, samples);
+			long start = System.currentTimeMillis();
+			tracker.extend(part);
+			runner.run(tracker, random, factory, total);
+			samples -= part;
+			cacheEntry.checkpoint(this);
+			long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+			part = (int) Math.max(Math.min(part * CHECKPOINT_INTERVAL / elapsed, Integer.MAX_VALUE), 1);
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package cli;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import tracking.BinaryRoundReader;
+import tracking.BinaryRoundSink;
+
+/**
+ *	Keeps the records of configurations across runs, so that a script that is run again
+ *	skips the configurations that it has finished before, and continues the one that it was
+ *	interrupted in. A configuration is identified by a hash of its parameters, the state of
+ *	its random stream when it was created, and how many samples it takes. Configurations
+ *	whose random stream is not seeded are never cached.
+ *	Every configuration has two files in the directory of the cache: its records, in the
+ *	format of {@link BinaryRoundSink}, and its state, which is replaced at every checkpoint.
+ *	The state holds the number of samples, the state of the random stream and the length
+ *	of the records at the checkpoint. Records beyond that length are dropped on restore, so
+ *	a continued configuration takes exactly the samples that an uninterrupted one takes.
+ */
+final class ResultCache {
+	private final File directory;
+
+	/**
+	 * @param directory The directory of the cache, which is created when
+	 * the first configuration is cached
+	 */
+	ResultCache(File directory) {
+		this.directory = directory;
+	}
+
+	File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * The records and the last checkpoint of one configuration.
+	 */
+	final class Entry {
+		private final String description;
+		private final File records, state;
+		// The sink that new records are copied to, or null once they are no longer cached
+		private BinaryRoundSink sink;
+		private boolean complete;
+
+		private Entry(String description, String key) {
+			this.description = description;
+			this.records = new File(directory, key + ".bin");
+			this.state = new File(directory, key + ".state");
+		}
+
+		/**
+		 * @return Whether the configuration has taken all its samples
+		 */
+		boolean isComplete() {
+			return complete;
+		}
+
+		/**
+		 * Records the samples that the configuration has taken so far,
+		 * so that a later run continues from here.
+		 */
+		void checkpoint(Configuration c) {
+			write(c, false);
+		}
+
+		/**
+		 * Records that the configuration has taken all its samples, so
+		 * that a later run does not take any.
+		 */
+		void complete(Configuration c) {
+			write(c, true);
+		}
+
+		/**
+		 * Adds the records of the last checkpoint to the dataset of a configuration,
+		 * and continues its random stream where the checkpoint left off. If there is
+		 * no checkpoint, or it does not belong to this configuration, the configuration
+		 * starts from scratch.
+		 */
+		private void restore(Configuration c) throws IOException {
+			boolean complete = false;
+			Properties p = new Properties();
+			long count = 0;
+			int samples = 0;
+			long[] random = null;
+			try {
+				if(state.exists()) {
+					InputStream in = new FileInputStream(state);
+					try {
+						p.load(in);
+					} finally {
+						in.close();
+					}
+				}
+				if(description.equals(p.getProperty("configuration")) && truncate(Long.parseLong(p.getProperty("length")))) {
+					count = Long.parseLong(p.getProperty("records"));
+					samples = Integer.parseInt(p.getProperty("samples"));
+					String[] r = p.getProperty("random").split(":");
+					random = new long[] {Long.parseUnsignedLong(r[0], 16), Long.parseUnsignedLong(r[1], 16)};
+					complete = Boolean.parseBoolean(p.getProperty("complete"));
+					if(countRecords() != count) {
+						random = null;
+					}
+				}
+			} catch(IOException | RuntimeException e) {
+				System.err.println("The checkpoint " + state + " is damaged, the configuration starts from scratch");
+				random = null;
+			}
+			if(random != null) {
+				replay(c);
+				c.restore(samples, random);
+			} else {
+				complete = false;
+				records.delete();
+			}
+			this.complete = complete;
+			if(!complete) {
+				directory.mkdirs();
+				sink = new BinaryRoundSink(records);
+				c.dataset.copyTo(sink);
+				c.checkpointTo(this);
+			}
+		}
+
+		/**
+		 * Drops the records that have been written after the last checkpoint.
+		 * @return Whether all records of the last checkpoint still exist
+		 */
+		private boolean truncate(long length) throws IOException {
+			if(records.length() < length) {
+				return false;
+			}
+			FileChannel channel = FileChannel.open(records.toPath(), StandardOpenOption.WRITE);
+			try {
+				channel.truncate(length);
+			} finally {
+				channel.close();
+			}
+			return true;
+		}
+
+		private long countRecords() throws IOException {
+			if(records.length() == 0) {
+				return 0;
+			}
+			BinaryRoundReader reader = new BinaryRoundReader(records);
+			long count = 0;
+			try {
+				while(reader.next()) {
+					count += reader.getRows();
+				}
+			} finally {
+				reader.close();
+			}
+			return count;
+		}
+
+		private void replay(Configuration c) throws IOException {
+			if(records.length() == 0) {
+				return;
+			}
+			BinaryRoundReader reader = new BinaryRoundReader(records);
+			try {
+				while(reader.next()) {
+					for(int i = 0; i < reader.getRows(); i++) {
+						c.dataset.add(reader.getCollisions(i), reader.getRequiredRounds(i), reader.getEmptySlots(i), reader.getData(i));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		private void write(Configuration c, boolean complete) {
+			if(sink == null) {
+				return;
+			}
+			try {
+				// The records are written before the state that refers to them
+				sink.flush();
+				long[] random = c.getRandomState();
+				Properties p = new Properties();
+				p.setProperty("configuration", description);
+				p.setProperty("samples", Integer.toString(c.getSamples()));
+				p.setProperty("records", Long.toString(c.dataset.getDataStatistics().getCount()));
+				p.setProperty("length", Long.toString(records.length()));
+				p.setProperty("random", Long.toHexString(random[0]) + ":" + Long.toHexString(random[1]));
+				p.setProperty("complete", Boolean.toString(complete));
+				// The state is replaced at once, so that it is never read half written
+				File tmp = new File(directory, state.getName() + ".tmp");
+				OutputStream out = new FileOutputStream(tmp);
+				try {
+					p.store(out, null);
+				} finally {
+					out.close();
+				}
+				Files.move(tmp.toPath(), state.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				if(complete) {
+					this.complete = true;
+					detach(c);
+				}
+			} catch(IOException e) {
+				System.err.println("Could not checkpoint to " + state + ", the configuration is no longer cached");
+				e.printStackTrace();
+				detach(c);
+			}
+		}
+
+		private void detach(Configuration c) {
+			c.dataset.copyTo(null);
+			c.checkpointTo(null);
+			BinaryRoundSink sink = this.sink;
+			this.sink = null;
+			try {
+				sink.close();
+			} catch(IOException e) {
+				System.err.println("Could not write to " + records);
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Restores the samples that a configuration has taken in a previous run, if any,
+	 * and checkpoints the samples that it takes from now on. Must be called before
+	 * the configuration takes any samples.
+	 * @param  c        The configuration
+	 * @param  sampling Describes how many samples the configuration takes
+	 * @return The entry of the configuration, or null if it is not cached
+	 */
+	Entry open(Configuration c, String sampling) {
+		if(c.parameters == null) {
+			return null;
+		}
+		String description = c.parameters + " " + sampling;
+		Entry entry = new Entry(description, key(description));
+		try {
+			entry.restore(c);
+		} catch(IOException e) {
+			System.err.println("Could not restore " + entry.records + ", the configuration is not cached");
+			e.printStackTrace();
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * @return A hash of the description of a configuration, which names its files
+	 */
+	private static String key(String description) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+			StringBuilder key = new StringBuilder();
+			for(int i = 0; i < 16; i++) {
+				key.append(String.format("%02x", hash[i] & 0xff));
+			}
+			return key.toString();
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import benchmarking.RandomSource;
+
+import tracking.StatisticsTracker;
+
+/**
+ *	Takes the samples of one benchmark configuration until its tracker is finished,
+ *	and prints the progress in the meantime. Samples are either taken on the calling
+ *	thread, or by a number of workers that each own a separate scheduler and report
+ *	to the same tracker.
+ */
+public class SampleRunner {
+	/**
+	 * The interval in milliseconds in which the progress is updated while workers are busy
+	 */
+	private static final long PROGRESS_INTERVAL = 100;
+
+	/**
+	 * The number of workers that take samples concurrently
+	 */
+	private final int workers;
+
+	/**
+	 * The threads of the workers, or null if samples are taken on the calling thread
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Whether the progress is printed
+	 */
+	private final boolean showProgress;
+
+	/**
+	 * Takes a single sample of a configuration.
+	 */
+	public static abstract class Sampler {
+		public abstract void sample();
+	}
+
+	/**
+	 * Creates the sampler of a worker. Every worker calls this once, so that
+	 * no scheduler state is shared between workers.
+	 */
+	public static abstract class Factory {
+		/**
+		 * @param  random The random stream of the worker
+		 * @return A sampler that only uses the given random stream
+		 */
+		public abstract Sampler create(RandomSource random);
+	}
+
+	/**
+	 * Initializes a runner.
+	 * @param  workers The number of workers that take samples concurrently.
+	 * Values below 2 take all samples on the calling thread.
+	 */
+	public SampleRunner(int workers) {
+		this(workers, true);
+	}
+
+	/**
+	 * Initializes a runner.
+	 * @param  workers The number of workers that take samples concurrently.
+	 * Values below 2 take all samples on the calling thread.
+	 * @param  showProgress Whether the progress is printed, which is not the
+	 * case if several configurations are sampled at the same time
+	 */
+	public SampleRunner(int workers, boolean showProgress) {
+		this.workers = Math.max(workers, 1);
+		this.showProgress = showProgress;
+		if(this.workers > 1) {
+			executor = Executors.newFixedThreadPool(this.workers, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "sample-worker");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		} else {
+			executor = null;
+		}
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Takes samples until the tracker is finished.
+	 * @param tracker The tracker that all samplers report to
+	 * @param random  The random stream of this configuration. Every worker gets
+	 * a child stream, which is split off in the order of the workers.
+	 * @param factory Creates one sampler per worker
+	 */
+	public void run(final StatisticsTracker tracker, RandomSource random, final Factory factory) {
+		run(tracker, random, factory, 0);
+	}
+
+	/**
+	 * Takes samples until the tracker is finished, as part of a larger batch.
+	 * @param tracker The tracker that all samplers report to
+	 * @param random  The random stream of this configuration
+	 * @param factory Creates one sampler per worker
+	 * @param total   The number of samples of the whole batch, relative to
+	 * which the progress is printed, or 0 if the batch ends with the tracker
+	 */
+	public void run(final StatisticsTracker tracker, RandomSource random, final Factory factory, int total) {
+		Progress progress = new Progress(progress(tracker, total), showProgress);
+		if(executor == null) {
+			Sampler sampler = factory.create(random);
+			do {
+				sampler.sample();
+				progress.update(progress(tracker, total));
+			} while(!tracker.isFinished());
+			return;
+		}
+
+		List<Future<?>> futures = new ArrayList<Future<?>>(workers);
+		for(int i = 0; i < workers; i++) {
+			final RandomSource workerRandom = random.split();
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					Sampler sampler = factory.create(workerRandom);
+					while(!tracker.isFinished()) {
+						sampler.sample();
+					}
+				}
+			}));
+		}
+		try {
+			for(Future<?> future: futures) {
+				while(true) {
+					try {
+						future.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+						break;
+					} catch(TimeoutException e) {
+						progress.update(progress(tracker, total));
+					}
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for samples", e);
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("A sample could not be taken", e.getCause());
+		}
+		progress.update(progress(tracker, total));
+	}
+
+	private static double progress(StatisticsTracker tracker, int total) {
+		return total > 0 ? (double) tracker.getObservations() / total : tracker.getProgress();
+	}
+
+	/**
+	 * Stops all workers once the samples that are being taken are finished.
+	 */
+	public void shutdown() {
+		if(executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Prints one dot per percent of progress, and one plus per permille
+	 * once 95% of the samples have been taken.
+	 */
+	private static class Progress {
+		private int progress = 0;
+		private int progressMilli = 0;
+		private final boolean visible;
+
+		/**
+		 * @param start The progress that has already been printed,
+		 * e.g. by a previous batch of samples of the same tracker
+		 * @param visible Whether anything is printed at all
+		 */
+		private Progress(double start, boolean visible) {
+			this.visible = visible;
+			progress = (int) Math.ceil(start * 100);
+			if(start > 0.95d) {
+				progressMilli = (int) Math.ceil((start - 0.95d) * 1000);
+			}
+		}
+
+		private void update(double currentProgress) {
+			if(!visible) {
+				return;
+			}
+			while((currentProgress * 100) > progress) {
+				System.out.print(".");
+				progress++;
+			}
+			if(currentProgress > 0.95d) {
+				while(((currentProgress - 0.95d) * 1000) > progressMilli) {
+					System.out.print("+");
+					progressMilli++;
+				}
+			}
+		}
+	}
+}
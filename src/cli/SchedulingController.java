@@ -5,35 +5,110 @@ import cli.ArgSet;
 
 import benchmarking.FootprintScheduling.WithdrawBehaviour;
 import benchmarking.FootprintScheduling;
+import benchmarking.FootprintKernels;
+import benchmarking.OccupancyScheduling;
 import benchmarking.ChaumScheduling;
 import benchmarking.PfitzmannScheduling;
+import benchmarking.RandomSource;
+import benchmarking.ActivitySampler;
 
 import tracking.RoundDataset;
 import tracking.ReservationDataset;
 import tracking.Dataset;
+import tracking.CsvSink;
+import tracking.BinaryRoundSink;
+import tracking.RoundDataConverter;
+import tracking.RoundSummarizer;
 import tracking.StatisticsTracker;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.InputMismatchException;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 
 public class SchedulingController extends CLC {
 	private static final int NUM_SAMPLES = 100;
 
+	// The number of samples per configuration, unless they are adaptive
+	private int numSamples = NUM_SAMPLES;
+
+	// Decides how many samples each configuration takes,
+	// or null if every configuration takes numSamples
+	private AdaptiveSampling adaptiveSampling;
+
+	// The pool on which the clients of a footprint scheduling round
+	// are updated in parallel, or null to update them sequentially
+	private ForkJoinPool clientPool;
+
+	// Takes the samples of each configuration, possibly on several workers
+	private SampleRunner sampleRunner = new SampleRunner(1);
+
+	// The source of the random streams of all configurations
+	private RandomSource random = RandomSource.create();
+
+	// Whether the random streams are derived from a seed, so that
+	// the samples of a configuration can be reproduced
+	private boolean seeded;
+
+	// Keeps the records of seeded configurations across runs, or null
+	private ResultCache cache;
+
+	// The kernels that superpose and compare footprint schedules
+	private FootprintKernels kernels = FootprintKernels.best();
+
+	// How the number of active clients of footprint scheduling and
+	// Chaum's algorithm is determined. Pfitzmann's algorithm always
+	// uses Bernoulli activity.
+	private ActivitySampler.Model activityModel = ActivitySampler.Model.Fixed;
+
+	// The datasets whose records are kept until they are written
+	private final ArrayList<Dataset> pendingSets = new ArrayList<Dataset>();
+
+	// Whether the records of new datasets are streamed to disk as they are taken
+	private boolean streaming;
+
+	// Whether the records of new datasets are kept or streamed at all,
+	// rather than only being summarized
+	private boolean keepRows = true;
+
+	// The formats in which round data is written
+	private boolean csvFormat = true, binaryFormat = false;
+
+	// The sweep that the configurations of all commands are queued to,
+	// or null if every command takes its samples right away
+	private Sweep sweep;
+
+	// The sinks that datasets are streamed or written to, by name prefix
+	private final HashMap<String, CsvSink> sinks = new HashMap<String, CsvSink>();
+	private final HashMap<String, BinaryRoundSink> binarySinks = new HashMap<String, BinaryRoundSink>();
+
 	public SchedulingController() {
-		final ArrayList<Dataset> pendingSets = new ArrayList<Dataset>();
+		// Streamed records that are still buffered are written when the simulator exits
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				closeSinks();
+			}
+		});
 
-		Action footprintAction = new Action() {
+		class FootprintAction extends Action {
+			// Whether slots are simulated by their number of contenders
+			// rather than by simulating every client
+			private final boolean occupancy;
 			private int numSlots, numBits;
 			private int numRounds = 128;
 			private double activity;
 			private boolean stopOnConvergence;
 			private WithdrawBehaviour withdrawBehaviour;
+
+			FootprintAction(boolean occupancy) {
+				this.occupancy = occupancy;
+			}
 			
 			@Override
 			public void execute(ArgSet args) {
@@ -99,44 +174,76 @@ public class SchedulingController extends CLC {
 				}
 				percentage = new Double[]{0.75};
 				
+				try {
+					FootprintScheduling.checkBits(numBits);
+				} catch(IllegalArgumentException e) {
+					System.out.println(e.getMessage());
+					return;
+				}
+				
 				int cc = clients.length;
 				int pp = percentage.length;
-				System.out.println("Executing FOOTPRINT SCHEDULING benchmark for " +  numSlots + " slots, "+ numRounds+ " rounds and " + numBits + " bits per slot, " + activity*100 +"% client activity, using "+ withdrawBehaviour.name() + " Withdraw behaviour" + (stopOnConvergence?", stopping on convergence":""));
+				long comparedWords = kernels.getComparedWords();
+				System.out.println("Executing FOOTPRINT SCHEDULING " + (occupancy ? "(OCCUPANCY LEVEL) " : "") + "benchmark for " +  numSlots + " slots, "+ numRounds+ " rounds and " + numBits + " bits per slot, " + activity*100 +"% " + (activityModel == ActivitySampler.Model.Bernoulli ? "Bernoulli " : "") + "client activity, using "+ withdrawBehaviour.name() + " Withdraw behaviour" + (stopOnConvergence?", stopping on convergence":""));
+				ArrayList<Configuration> configurations = new ArrayList<Configuration>();
 				for(int i = 0; i < cc; i++) {
 					for(int j = 0; j < pp; j++) {
 						numRounds = (int) (Math.log(clients[i]) / Math.log(2d));
-						System.out.print("["+(i*pp+j+1)+"/"+(cc*pp)+"]\t" + clients[i] + " client(s)\t" + numRounds + " rounds\t" + numSlots + " slots\t" + withdrawBehaviour+" ("+percentage[j]+")\t");
-						benchmark(NUM_SAMPLES, clients[i], percentage[j]);
-						System.out.println("\t [DONE]");
+						String label = "["+(i*pp+j+1)+"/"+(cc*pp)+"]\t" + clients[i] + " client(s)\t" + numRounds + " rounds\t" + numSlots + " slots\t" + withdrawBehaviour+" ("+percentage[j]+")\t";
+						configurations.add(configure(label, clients[i], percentage[j]));
 					}
 				}
+				runConfigurations(configurations);
+				// Queued configurations are compared when the sweep finishes
+				if(comparedWords >= 0 && !occupancy && sweep == null) {
+					System.out.println("The " + kernels.getName() + " kernels agreed on " + (kernels.getComparedWords() - comparedWords) + " words");
+				}
 				
 				System.out.println(" DONE");
 			}
 
-			private void benchmark(int samples, int clients, double percentage) {
-				StatisticsTracker tracker = new StatisticsTracker(samples);
-				RoundDataset roundD = new RoundDataset(Dataset.Algorithm.Footprint, numSlots, numRounds, numBits, clients, activity);
-				FootprintScheduling s = new FootprintScheduling(samples, clients, numSlots, numRounds, numBits, activity, stopOnConvergence, withdrawBehaviour, percentage, tracker, roundD);
-				int progress = 0;
-				int progressMilli = 0;
-				do {
-					s.scheduleMultiple();
-					double currentProgress = tracker.getProgress();
-					while((currentProgress * 100) > progress) {
-						System.out.print(".");
-						progress++;
-					}
-					if(currentProgress > 0.95d) {
-						while(((currentProgress - 0.95d) * 1000) > progressMilli) {
-							System.out.print("+");
-							progressMilli++;
+			private Configuration configure(String label, final int clients, final double percentage) {
+				// The configuration is sampled after the fields have moved on to the next one
+				final int numSlots = this.numSlots, numRounds = this.numRounds, numBits = this.numBits;
+				final boolean stopOnConvergence = this.stopOnConvergence;
+				final WithdrawBehaviour withdrawBehaviour = this.withdrawBehaviour;
+				final int samples = numSamples;
+				final RoundDataset roundD = new RoundDataset(occupancy ? Dataset.Algorithm.Occupancy : Dataset.Algorithm.Footprint, numSlots, numRounds, numBits, clients, activity);
+				final ActivitySampler activitySampler = new ActivitySampler(activityModel, activity);
+				final FootprintKernels kernels = SchedulingController.this.kernels;
+				final ForkJoinPool clientPool = SchedulingController.this.clientPool;
+				// Footprint scheduling updates every client in every round,
+				// the occupancy level only every slot
+				double cost = (double) Math.max(numRounds, 1) * numSlots * (occupancy ? 1 : clients);
+				String parameters = roundD.getAlgorithm() + " slots=" + numSlots + " rounds=" + numRounds + " bits=" + numBits + " clients=" + clients
+					+ " activity=" + activity + " " + activityModel + " withdraw=" + withdrawBehaviour + " " + percentage + " stopOnConvergence=" + stopOnConvergence
+					+ " partitions=" + (clientPool == null || occupancy ? 1 : clientPool.getParallelism());
+				final Configuration configuration = new Configuration(label, roundD, random.split(), cost, seeded ? parameters : null);
+				final StatisticsTracker tracker = configuration.tracker;
+				configuration.setFactory(new SampleRunner.Factory() {
+					@Override
+					public SampleRunner.Sampler create(RandomSource random) {
+						if(occupancy) {
+							final OccupancyScheduling s = new OccupancyScheduling(samples, clients, numSlots, numRounds, numBits, activitySampler, stopOnConvergence, percentage, tracker, roundD, random);
+							return new SampleRunner.Sampler() {
+								@Override
+								public void sample() {
+									s.scheduleMultiple();
+								}
+							};
 						}
+						final FootprintScheduling s = new FootprintScheduling(samples, clients, numSlots, numRounds, numBits, activitySampler, stopOnConvergence, withdrawBehaviour, percentage, tracker, roundD, clientPool, kernels, random);
+						return new SampleRunner.Sampler() {
+							@Override
+							public void sample() {
+								s.scheduleMultiple();
+							}
+						};
 					}
-				} while(!tracker.isFinished());
-				pendingSets.add(roundD);
+				});
+				return configuration;
 			}
-		};
+		}
 
 		Action pfitzmannAction = new Action() {
 			private int numSlots;
@@ -166,42 +273,46 @@ public class SchedulingController extends CLC {
 				double[] bytesPerReservation = new double[cc];
 				double[] byteSD = new double[cc];
 				System.out.println("Executing PFITZMANN'S ALGORITHM benchmark for " + numSlots + " slots per client, " + activity*100 +"% client activity");
+				ArrayList<Configuration> configurations = new ArrayList<Configuration>();
 				for(int i = 0; i < cc; i++) {
-					System.out.print("["+(i+1)+"/"+cc+"]\t" + clients[i] + " client(s)\t" + clients[i]*numSlots + " slots\t");
-					benchmark(NUM_SAMPLES, clients[i]);
-					System.out.println("\t [DONE]");
+					String label = "["+(i+1)+"/"+cc+"]\t" + clients[i] + " client(s)\t" + (long) clients[i] * numSlots + " slots\t";
+					configurations.add(configure(label, clients[i]));
 				}
+				runConfigurations(configurations);
 
 				System.out.println(" DONE");
 			}
 
-			private void benchmark(int samples, int clients) {
-				StatisticsTracker tracker = new StatisticsTracker(samples);
-				RoundDataset roundD = new RoundDataset(Dataset.Algorithm.Pfitzmann, numSlots*clients, 1, numSlots, clients, activity);
-				PfitzmannScheduling s = new PfitzmannScheduling(samples, clients, clients * numSlots, activity, tracker, roundD);
-				int progress = 0;
-				int progressMilli = 0;
-				do {
-					s.schedule();
-					double currentProgress = tracker.getProgress();
-					while((currentProgress * 100) > progress) {
-						System.out.print(".");
-						progress++;
+			private Configuration configure(String label, final int clients) {
+				final int numSlots = this.numSlots;
+				final int samples = numSamples;
+				final RoundDataset roundD = new RoundDataset(Dataset.Algorithm.Pfitzmann, (long) numSlots * clients, 1, numSlots, clients, activity);
+				final ActivitySampler activitySampler = new ActivitySampler(ActivitySampler.Model.Bernoulli, activity);
+				final ForkJoinPool clientPool = SchedulingController.this.clientPool;
+				String parameters = "Pfitzmann slots=" + numSlots + " clients=" + clients + " activity=" + activity;
+				final Configuration configuration = new Configuration(label, roundD, random.split(), (double) clients * numSlots, seeded ? parameters : null);
+				final StatisticsTracker tracker = configuration.tracker;
+				configuration.setFactory(new SampleRunner.Factory() {
+					@Override
+					public SampleRunner.Sampler create(RandomSource random) {
+						final PfitzmannScheduling s = new PfitzmannScheduling(samples, clients, (long) clients * numSlots, activitySampler, tracker, roundD, clientPool, random);
+						return new SampleRunner.Sampler() {
+							@Override
+							public void sample() {
+								s.schedule();
+							}
+						};
 					}
-					if(currentProgress > 0.95d) {
-						while(((currentProgress - 0.95d) * 1000) > progressMilli) {
-							System.out.print("+");
-							progressMilli++;
-						}
-					}
-				} while(!tracker.isFinished());
-				pendingSets.add(roundD);
+				});
+				return configuration;
 			}
 		};
 
 		Action chaumAction = new Action() {
 			private double activity;
 			private int ratio;
+			// Whether the statistics are sampled directly, without any choices
+			private boolean direct;
 
 
 			@Override
@@ -227,40 +338,46 @@ public class SchedulingController extends CLC {
 				} else {
 					ratio = 32;
 				}
+				direct = args.hasArg() && args.pop().equalsIgnoreCase("direct");
 				int cc = clients.length;
 				double[] bytesPerReservation = new double[cc];
 				double[] byteSD = new double[cc];
-				System.out.println("Executing CHAUM benchmark for " + activity*100 +"% client activity");
+				System.out.println("Executing CHAUM " + (direct ? "(DIRECT) " : "") + "benchmark for " + activity*100 +"% " + (activityModel == ActivitySampler.Model.Bernoulli ? "Bernoulli " : "") + "client activity");
+				ArrayList<Configuration> configurations = new ArrayList<Configuration>();
 				for(int i = 0; i < cc; i++) {
-					System.out.print("["+(i+1)+"/"+cc+"]\t" + clients[i] + " client(s)\t");
-					benchmark(NUM_SAMPLES, clients[i]);
-					System.out.println("\t [DONE]");
+					String label = "["+(i+1)+"/"+cc+"]\t" + clients[i] + " client(s)\t";
+					configurations.add(configure(label, clients[i]));
 				}
+				runConfigurations(configurations);
 				System.out.println(" DONE");
 			}
 
-			private void benchmark(int samples, int clients) {
-				StatisticsTracker tracker = new StatisticsTracker(samples);
-				int numSlots = (int) ((double) ratio * (double) clients);
-				RoundDataset roundD = new RoundDataset(Dataset.Algorithm.Chaum, numSlots, 1, ratio, clients, activity);
-				ChaumScheduling s = new ChaumScheduling(samples, numSlots, clients, activity, tracker, roundD);
-				int progress = 0;
-				int progressMilli = 0;
-				do {
-					s.schedule();
-					double currentProgress = tracker.getProgress();
-					while((currentProgress * 100) > progress) {
-						System.out.print(".");
-						progress++;
-					}
-					if(currentProgress > 0.95d) {
-						while(((currentProgress - 0.95d) * 1000) > progressMilli) {
-							System.out.print("+");
-							progressMilli++;
-						}
+			private Configuration configure(String label, final int clients) {
+				final boolean direct = this.direct;
+				final int samples = numSamples;
+				final int numSlots = (int) ((double) ratio * (double) clients);
+				final RoundDataset roundD = new RoundDataset(Dataset.Algorithm.Chaum, numSlots, 1, ratio, clients, activity);
+				final ActivitySampler activitySampler = new ActivitySampler(activityModel, activity);
+				String parameters = "Chaum" + (direct ? " direct" : "") + " slots=" + numSlots + " ratio=" + ratio + " clients=" + clients + " activity=" + activity + " " + activityModel;
+				final Configuration configuration = new Configuration(label, roundD, random.split(), direct ? clients : numSlots, seeded ? parameters : null);
+				final StatisticsTracker tracker = configuration.tracker;
+				configuration.setFactory(new SampleRunner.Factory() {
+					@Override
+					public SampleRunner.Sampler create(RandomSource random) {
+						final ChaumScheduling s = new ChaumScheduling(samples, numSlots, clients, activitySampler, tracker, roundD, random);
+						return new SampleRunner.Sampler() {
+							@Override
+							public void sample() {
+								if(direct) {
+									s.scheduleDirect();
+								} else {
+									s.schedule();
+								}
+							}
+						};
 					}
-				} while(!tracker.isFinished());
-				pendingSets.add(roundD);
+				});
+				return configuration;
 			}
 		};
 
@@ -270,18 +387,22 @@ public class SchedulingController extends CLC {
 				try {
 					System.out.print("Writing " + pendingSets.size() + " sets to disk... ");
 					for(Dataset d: pendingSets) {
-						boolean includeHeader = false;
-						String path = "benchmark-data/" + d.namePrefix + ".csv";
-						File f = new File(path);
-						if(!f.exists()) {
-							includeHeader = true;
-							f.getParentFile().mkdirs();
+						if(isCsv(d)) {
+							d.writeTo(csvSink(d));
+						}
+						if(isBinary(d)) {
+							binarySink(d).append((RoundDataset) d);
 						}
-						BufferedWriter bw = new BufferedWriter(new FileWriter(f, true));
-						bw.write(d.toString(includeHeader));
-						bw.close();
 					}
 					pendingSets.clear();
+					synchronized(sinks) {
+						for(CsvSink sink: sinks.values()) {
+							sink.flush();
+						}
+						for(BinaryRoundSink sink: binarySinks.values()) {
+							sink.flush();
+						}
+					}
 					System.out.println("DONE");
 				} catch(IOException e) {
 					e.printStackTrace();
@@ -296,13 +417,625 @@ public class SchedulingController extends CLC {
 			}
 		};
 
-		mapCommand("footprint", footprintAction);
+		Action seedAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				if(args.hasArg()) {
+					long seed = Long.valueOf(args.pop());
+					random = RandomSource.create(seed);
+					seeded = true;
+					System.out.println("Random streams are now derived from seed " + seed);
+				} else {
+					random = RandomSource.create();
+					seeded = false;
+					System.out.println("Random streams are no longer seeded");
+				}
+			}
+		};
+
+		Action parallelSamplesAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				int workers = args.fetchInteger();
+				sampleRunner.shutdown();
+				sampleRunner = new SampleRunner(workers);
+				System.out.println("Taking the samples of each configuration on " + sampleRunner.getWorkers() + " thread(s)");
+			}
+		};
+
+		Action parallelClientsAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				int threads = args.fetchInteger();
+				if(clientPool != null) {
+					clientPool.shutdown();
+				}
+				if(threads > 1) {
+					clientPool = new ForkJoinPool(threads);
+				} else {
+					clientPool = null;
+					threads = 1;
+				}
+				System.out.println("Updating the clients of each footprint scheduling round on " + threads + " thread(s)");
+			}
+		};
+
+		Action scalarKernelAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				kernels = FootprintKernels.scalar();
+				System.out.println("Using the " + kernels.getName() + " footprint kernels");
+			}
+		};
+
+		Action vectorKernelAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				FootprintKernels vector = FootprintKernels.vector();
+				if(vector == null) {
+					System.out.println("The Vector API is not available, using the " + kernels.getName() + " footprint kernels");
+				} else {
+					kernels = vector;
+					System.out.println("Using the " + kernels.getName() + " footprint kernels");
+				}
+			}
+		};
+
+		Action compareKernelAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				FootprintKernels compare = FootprintKernels.compare();
+				if(compare == null) {
+					System.out.println("The Vector API is not available, using the " + kernels.getName() + " footprint kernels");
+				} else {
+					kernels = compare;
+					System.out.println("Comparing the results of the " + kernels.getName() + " footprint kernels");
+				}
+			}
+		};
+
+		Action fixedActivityAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				activityModel = ActivitySampler.Model.Fixed;
+				System.out.println("A fixed fraction of the clients is active");
+			}
+		};
+
+		Action bernoulliActivityAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				activityModel = ActivitySampler.Model.Bernoulli;
+				System.out.println("Every client is active independently of the others");
+			}
+		};
+
+		Action streamOnAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				streaming = true;
+				System.out.println("The records of all subsequent simulations are streamed to disk");
+			}
+		};
+
+		Action streamOffAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				streaming = false;
+				closeSinks();
+				System.out.println("The records of all subsequent simulations are kept until they are written");
+			}
+		};
+
+		Action rowsOnAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				keepRows = true;
+				System.out.println("The records of all subsequent simulations are kept");
+			}
+		};
+
+		Action rowsOffAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				keepRows = false;
+				System.out.println("Subsequent simulations are only summarized, their records are discarded");
+			}
+		};
+
+		Action fixedSamplesAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				numSamples = Math.max(args.fetchInteger(), 1);
+				adaptiveSampling = null;
+				System.out.println("Taking " + numSamples + " samples of every configuration");
+			}
+		};
+
+		Action adaptiveSamplesAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				double precision = Double.valueOf(args.pop());
+				int minSamples = args.fetchInteger();
+				int maxSamples = args.fetchInteger();
+				long budget = args.hasArg() ? Long.valueOf(args.pop()) : 0;
+				adaptiveSampling = new AdaptiveSampling(precision, minSamples, maxSamples, budget);
+				System.out.println("Taking samples of every configuration " + adaptiveSampling);
+			}
+		};
+
+		class FormatAction extends Action {
+			private final boolean csv, binary;
+
+			FormatAction(boolean csv, boolean binary) {
+				this.csv = csv;
+				this.binary = binary;
+			}
+
+			@Override
+			public void execute(ArgSet args) {
+				csvFormat = csv;
+				binaryFormat = binary;
+				System.out.println("Round data is written " + (csv ? "as .csv" + (binary ? " and " : "") : "") + (binary ? "in binary" : ""));
+			}
+		}
+
+		final Action sweepFinishAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				if(sweep == null) {
+					System.out.println("No sweep has been started");
+					return;
+				}
+				Sweep s = sweep;
+				sweep = null;
+				System.out.println("Running " + s.size() + " queued job(s) on " + s.getParallelism() + " thread(s)");
+				s.finish();
+				System.out.println("Sweep DONE");
+			}
+		};
+
+		Action sweepStartAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				if(sweep != null) {
+					sweepFinishAction.execute(args);
+				}
+				int threads = args.hasIntArg() ? args.fetchInteger() : Runtime.getRuntime().availableProcessors();
+				sweep = new Sweep(threads);
+				System.out.println("Queueing the configurations of all subsequent simulations, to run them on " + sweep.getParallelism() + " thread(s)");
+			}
+		};
+
+		Action cacheOnAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				cache = new ResultCache(new File("benchmark-data/cache"));
+				System.out.println("The results of subsequent seeded simulations are kept in " + cache.getDirectory() + ", and taken from there if they exist");
+				if(!seeded) {
+					System.out.println("Random streams are not seeded, so nothing is cached until a seed is set");
+				}
+			}
+		};
+
+		Action cacheOffAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				cache = null;
+				System.out.println("The results of subsequent simulations are not cached");
+			}
+		};
+
+		Action convertAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				File in = new File(args.pop());
+				File out = new File(args.pop());
+				try {
+					System.out.print("Converting " + in + " to " + out + "... ");
+					long records = RoundDataConverter.convert(in, out);
+					System.out.println(records + " records DONE");
+				} catch(IOException e) {
+					System.out.println("FAILED");
+					e.printStackTrace();
+				}
+			}
+		};
+
+		Action summarizeAction = new Action() {
+			@Override
+			public void execute(ArgSet args) {
+				ArrayList<File> in = new ArrayList<File>();
+				File out = new File("benchmark-data/round-summary.csv");
+				if(args.hasArg()) {
+					while(args.hasArg()) {
+						in.add(new File(args.pop()));
+					}
+					if(in.size() > 1) {
+						out = in.remove(in.size() - 1);
+					}
+				} else if(new File("benchmark-data/round-data.bin").exists()) {
+					in.add(new File("benchmark-data/round-data.bin"));
+				} else {
+					in.add(new File("benchmark-data/round-data.csv"));
+				}
+				int threads = Runtime.getRuntime().availableProcessors();
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				try {
+					System.out.print("Summarizing " + in + " into " + out + "... ");
+					int configurations = new RoundSummarizer(pool, threads).summarize(in, out);
+					System.out.println(configurations + " configurations DONE");
+				} catch(IOException e) {
+					System.out.println("FAILED");
+					e.printStackTrace();
+				} finally {
+					pool.shutdown();
+				}
+			}
+		};
+
+		mapCommand("footprint", new FootprintAction(false));
+		mapCommand("occupancy", new FootprintAction(true));
 		mapCommand("pfitzmann", pfitzmannAction);
 		mapCommand("chaum", chaumAction);
 
 		// pendingSet = new Dataset(false);
 		mapCommand("write", writeAction);
 		mapCommand("clear", clearAction);
+		mapCommand("seed", seedAction);
+		getContext("parallel").mapCommand("samples", parallelSamplesAction);
+		getContext("parallel").mapCommand("clients", parallelClientsAction);
+		getContext("kernel").mapCommand("scalar", scalarKernelAction);
+		getContext("kernel").mapCommand("vector", vectorKernelAction);
+		getContext("kernel").mapCommand("compare", compareKernelAction);
+		getContext("activity").mapCommand("fixed", fixedActivityAction);
+		getContext("activity").mapCommand("bernoulli", bernoulliActivityAction);
+		getContext("stream").mapCommand("on", streamOnAction);
+		getContext("stream").mapCommand("off", streamOffAction);
+		getContext("samples").setDefaultAction(fixedSamplesAction);
+		getContext("samples").mapCommand("adaptive", adaptiveSamplesAction);
+		getContext("format").mapCommand("csv", new FormatAction(true, false));
+		getContext("format").mapCommand("binary", new FormatAction(false, true));
+		getContext("format").mapCommand("both", new FormatAction(true, true));
+		getContext("sweep").mapCommand("start", sweepStartAction);
+		getContext("sweep").mapCommand("finish", sweepFinishAction);
+		getContext("cache").mapCommand("on", cacheOnAction);
+		getContext("cache").mapCommand("off", cacheOffAction);
+		mapCommand("convert", convertAction);
+		mapCommand("summarize", summarizeAction);
+		getContext("rows").mapCommand("on", rowsOnAction);
+		getContext("rows").mapCommand("off", rowsOffAction);
+	}
+
+	/**
+	 * Takes the samples of the configurations of a command, in order,
+	 * and prints a summary of each of them. While a sweep is active, the
+	 * configurations are queued to it instead.
+	 */
+	private void runConfigurations(List<Configuration> configurations) {
+		if(sweep == null) {
+			sample(configurations, sampleRunner, adaptiveSampling, numSamples, true);
+			return;
+		}
+		final AdaptiveSampling adaptive = adaptiveSampling;
+		final int samples = numSamples;
+		final boolean stream = streaming;
+		// A budget is shared by the configurations of a command, so they form one job
+		List<List<Configuration>> jobs = new ArrayList<List<Configuration>>();
+		if(adaptive != null && adaptive.budget > 0) {
+			jobs.add(configurations);
+		} else {
+			for(Configuration c: configurations) {
+				jobs.add(Arrays.asList(c));
+			}
+		}
+		for(final List<Configuration> job: jobs) {
+			for(Configuration c: job) {
+				if(!keepRows) {
+					c.dataset.discardRecords();
+				}
+			}
+			sweep.add(new Sweep.Job() {
+				@Override
+				double getCost() {
+					double cost = 0;
+					for(Configuration c: job) {
+						cost += c.cost * (adaptive == null ? samples : adaptive.minSamples);
+					}
+					return cost;
+				}
+
+				@Override
+				void run() {
+					sample(job, new SampleRunner(1, false), adaptive, samples, false);
+				}
+
+				@Override
+				void report() {
+					for(Configuration c: job) {
+						emit(c.dataset, stream);
+						System.out.println(c.label + "\t [DONE]");
+						System.out.println("\t" + c.getSamples() + " samples\t" + c.dataset.getSummary());
+					}
+				}
+			});
+		}
+		System.out.println("Queued " + configurations.size() + " configuration(s) to the sweep");
+	}
+
+	/**
+	 * Takes the samples of configurations, in order.
+	 * @param runner   Takes the samples of each configuration
+	 * @param adaptive Decides how many samples each configuration takes, or null
+	 * @param samples  The number of samples per configuration, unless they are adaptive
+	 * @param verbose  Whether the records are tracked, and the progress and summaries are
+	 * printed, rather than leaving both to the caller
+	 */
+	private void sample(List<Configuration> configurations, SampleRunner runner, AdaptiveSampling adaptive, int samples, boolean verbose) {
+		if(adaptive == null) {
+			for(Configuration c: configurations) {
+				start(c, verbose);
+				ResultCache.Entry entry = restore(c, runner, "samples=" + samples, verbose);
+				c.sample(runner, samples - c.getSamples());
+				if(entry != null) {
+					entry.complete(c);
+				}
+				finish(c, verbose);
+			}
+		} else if(adaptive.budget <= 0) {
+			for(Configuration c: configurations) {
+				start(c, verbose);
+				ResultCache.Entry entry = restore(c, runner, "precision=" + adaptive.precision + " min=" + adaptive.minSamples + " max=" + adaptive.maxSamples, verbose);
+				c.sample(runner, adaptive.minSamples - c.getSamples());
+				// The required samples are estimated again after every batch,
+				// since the first estimate relies on few samples
+				int required;
+				while((required = adaptive.requiredSamples(c.dataset.getDataStatistics())) > c.getSamples()) {
+					int batch = Math.max(required - c.getSamples(), adaptive.minSamples);
+					c.sample(runner, Math.min(batch, adaptive.maxSamples - c.getSamples()));
+				}
+				if(entry != null) {
+					entry.complete(c);
+				}
+				finish(c, verbose);
+			}
+		} else {
+			// The samples of a configuration depend on the other configurations
+			// of the command, so budgets are not cached
+			if(verbose) {
+				System.out.println("Taking " + adaptive.minSamples + " samples of every configuration");
+			}
+			int[] missing = new int[configurations.size()];
+			long left = adaptive.budget, totalMissing = 0;
+			for(int i = 0; i < missing.length; i++) {
+				Configuration c = configurations.get(i);
+				start(c, verbose);
+				c.sample(runner, adaptive.minSamples);
+				if(verbose) {
+					System.out.println("\t [DONE]");
+				}
+				missing[i] = adaptive.requiredSamples(c.dataset.getDataStatistics()) - c.getSamples();
+				totalMissing += missing[i];
+				left -= c.getSamples();
+			}
+			// Every configuration gets the same share of the samples it misses
+			long spread = Math.min(Math.max(left, 0), totalMissing);
+			double share = totalMissing > 0 ? (double) spread / totalMissing : 0d;
+			if(verbose) {
+				System.out.println("Spreading " + spread + " more samples across the configurations");
+			}
+			for(int i = 0; i < missing.length; i++) {
+				Configuration c = configurations.get(i);
+				int more = (int) (missing[i] * share);
+				if(more > 0) {
+					start(c, verbose);
+					c.sample(runner, more);
+					finish(c, verbose);
+				} else if(verbose) {
+					System.out.println(c.label);
+					System.out.println("\t" + c.getSamples() + " samples\t" + c.dataset.getSummary());
+					flush(c.dataset);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restores the samples that a configuration has taken in a previous run,
+	 * if results are cached, and checkpoints the samples that it takes from now on.
+	 * @param sampling Describes how many samples the configuration takes
+	 * @return The cache entry of the configuration, or null if it is not cached
+	 */
+	private ResultCache.Entry restore(Configuration c, SampleRunner runner, String sampling, boolean verbose) {
+		ResultCache cache = this.cache;
+		if(cache == null) {
+			return null;
+		}
+		// Samples that are taken by several workers depend on their timing
+		if(runner.getWorkers() > 1) {
+			sampling += " workers=" + runner.getWorkers();
+		}
+		ResultCache.Entry entry = cache.open(c, sampling);
+		if(entry != null && verbose) {
+			if(entry.isComplete()) {
+				System.out.print("\tcached");
+			} else if(c.getSamples() > 0) {
+				System.out.print("\tcontinuing after " + c.getSamples() + " samples\t");
+			}
+		}
+		return entry;
+	}
+
+	private void start(Configuration c, boolean verbose) {
+		if(!verbose) {
+			return;
+		}
+		if(c.getSamples() == 0) {
+			track(c.dataset);
+		}
+		System.out.print(c.label);
+	}
+
+	private void finish(Configuration c, boolean verbose) {
+		if(!verbose) {
+			return;
+		}
+		System.out.println("\t [DONE]");
+		System.out.println("\t" + c.getSamples() + " samples\t" + c.dataset.getSummary());
+		flush(c.dataset);
+	}
+
+	private static File dataFile(Dataset d, String extension) {
+		return new File("benchmark-data/" + d.namePrefix + extension);
+	}
+
+	/**
+	 * @return Whether the records of a dataset are written to a binary file
+	 */
+	private boolean isBinary(Dataset d) {
+		return binaryFormat && d instanceof RoundDataset;
+	}
+
+	/**
+	 * @return Whether the records of a dataset are written to a .csv file
+	 */
+	private boolean isCsv(Dataset d) {
+		return csvFormat || !(d instanceof RoundDataset);
+	}
+
+	/**
+	 * @return The sink of the .csv file of a dataset, which is opened if necessary
+	 */
+	private CsvSink csvSink(Dataset d) {
+		synchronized(sinks) {
+			CsvSink sink = sinks.get(d.namePrefix);
+			if(sink == null) {
+				sink = new CsvSink(dataFile(d, ".csv"), d.getHeader());
+				sinks.put(d.namePrefix, sink);
+			}
+			return sink;
+		}
+	}
+
+	/**
+	 * @return The sink of the binary file of a dataset, which is opened if necessary
+	 */
+	private BinaryRoundSink binarySink(Dataset d) throws IOException {
+		synchronized(sinks) {
+			BinaryRoundSink sink = binarySinks.get(d.namePrefix);
+			if(sink == null) {
+				sink = new BinaryRoundSink(dataFile(d, ".bin"));
+				binarySinks.put(d.namePrefix, sink);
+			}
+			return sink;
+		}
+	}
+
+	/**
+	 * Streams the records of a dataset to disk if streaming is enabled, keeps them
+	 * until they are written otherwise, and discards them if rows are disabled.
+	 */
+	private void track(Dataset d) {
+		if(!keepRows) {
+			d.discardRecords();
+		} else if(streaming) {
+			CsvSink csv = null;
+			BinaryRoundSink binary = null;
+			try {
+				if(isCsv(d)) {
+					csv = csvSink(d);
+				}
+				if(isBinary(d)) {
+					binary = binarySink(d);
+				}
+			} catch(IOException e) {
+				System.err.println("Could not open the " + d.namePrefix + " files, keeping the records until they are written");
+				e.printStackTrace();
+				pendingSets.add(d);
+				return;
+			}
+			if(csv != null) {
+				d.streamTo(csv);
+			}
+			if(binary != null) {
+				((RoundDataset) d).streamTo(binary);
+			}
+		} else {
+			pendingSets.add(d);
+		}
+	}
+
+	/**
+	 * Hands on the records of a dataset that has been sampled by a sweep, as if they had
+	 * been tracked while they were taken: they are written to disk if streaming was enabled
+	 * when the dataset was queued, and kept until they are written otherwise.
+	 */
+	private void emit(Dataset d, boolean stream) {
+		if(d.isDiscarding()) {
+			return;
+		}
+		if(!stream) {
+			pendingSets.add(d);
+			return;
+		}
+		try {
+			if(isCsv(d)) {
+				CsvSink sink = csvSink(d);
+				d.writeTo(sink);
+				sink.flush();
+			}
+			if(isBinary(d)) {
+				BinaryRoundSink sink = binarySink(d);
+				sink.append((RoundDataset) d);
+				sink.flush();
+			}
+		} catch(IOException e) {
+			System.err.println("Could not write the " + d.namePrefix + " files, keeping the records until they are written");
+			e.printStackTrace();
+			pendingSets.add(d);
+		}
+	}
+
+	/**
+	 * Writes the streamed records of a dataset to disk, so that they survive a crash.
+	 */
+	private void flush(Dataset d) {
+		CsvSink sink = d.getSink();
+		BinaryRoundSink binarySink = d instanceof RoundDataset ? ((RoundDataset) d).getBinarySink() : null;
+		try {
+			if(sink != null) {
+				sink.flush();
+			}
+			if(binarySink != null) {
+				binarySink.flush();
+			}
+		} catch(IOException e) {
+			System.err.println("Could not write the " + d.namePrefix + " files");
+			e.printStackTrace();
+		}
+	}
+
+	private void closeSinks() {
+		synchronized(sinks) {
+			for(CsvSink sink: sinks.values()) {
+				try {
+					sink.close();
+				} catch(IOException e) {
+					System.err.println("Could not write to " + sink.getFile());
+					e.printStackTrace();
+				}
+			}
+			for(BinaryRoundSink sink: binarySinks.values()) {
+				try {
+					sink.close();
+				} catch(IOException e) {
+					System.err.println("Could not write to " + sink.getFile());
+					e.printStackTrace();
+				}
+			}
+			sinks.clear();
+			binarySinks.clear();
+		}
 	}
 
-}
\ No newline at end of file
+}
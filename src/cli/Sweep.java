@@ -0,0 +1,104 @@
+package cli;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ *	Collects the jobs of several commands, e.g. of a script, and runs them on a pool of
+ *	work-stealing threads. The largest jobs are started first, so that no large job is left
+ *	over at the end. Every job has its own random stream, which it got when it was queued,
+ *	so its results do not depend on when or on which thread it runs. The results are
+ *	reported in the order in which the jobs were queued, as soon as all earlier jobs
+ *	have been reported, so that the output matches that of running the jobs one by one.
+ */
+final class Sweep {
+
+	/**
+	 * A part of a command that can be run on its own.
+	 */
+	static abstract class Job {
+		// The position of the job in the queue of its sweep
+		private int index;
+
+		/**
+		 * @return An estimate of the time that the job takes, in arbitrary units
+		 */
+		abstract double getCost();
+
+		/**
+		 * Takes all samples of the job, without printing anything.
+		 */
+		abstract void run();
+
+		/**
+		 * Writes and prints the results of the job. Jobs are reported one at a
+		 * time, in the order in which they were queued.
+		 */
+		abstract void report();
+	}
+
+	private final int parallelism;
+	private final List<Job> jobs = new ArrayList<Job>();
+
+	/**
+	 * @param parallelism The number of jobs that run at the same time
+	 */
+	Sweep(int parallelism) {
+		this.parallelism = Math.max(parallelism, 1);
+	}
+
+	int getParallelism() {
+		return parallelism;
+	}
+
+	void add(Job job) {
+		job.index = jobs.size();
+		jobs.add(job);
+	}
+
+	int size() {
+		return jobs.size();
+	}
+
+	/**
+	 * Runs all jobs, and reports them in order.
+	 */
+	void finish() {
+		List<Job> largestFirst = new ArrayList<Job>(jobs);
+		Collections.sort(largestFirst, new Comparator<Job>() {
+			@Override
+			public int compare(Job a, Job b) {
+				return Double.compare(b.getCost(), a.getCost());
+			}
+		});
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>(Collections.<Future<?>>nCopies(jobs.size(), null));
+			for(final Job job: largestFirst) {
+				futures.set(job.index, pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						job.run();
+					}
+				}));
+			}
+			for(int i = 0; i < jobs.size(); i++) {
+				futures.get(i).get();
+				jobs.get(i).report();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the sweep", e);
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("A job of the sweep failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+			jobs.clear();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package tracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *	Reads the blocks of a file that was written by {@link BinaryRoundSink}, one after another.
+ *	The file is mapped into memory in windows of up to WINDOW bytes, so records are read
+ *	straight from the page cache, without parsing or copying them.
+ */
+public class BinaryRoundReader {
+
+	private static final long WINDOW = 1L << 30;
+
+	private final File file;
+	private final FileChannel channel;
+	private final long size;
+	private final String schema;
+	// The algorithms, by the index that the file uses for them
+	private final Dataset.Algorithm[] algorithms;
+
+	// The mapped part of the file, and its position in the file
+	private MappedByteBuffer window;
+	private long windowStart;
+
+	// The position of the next block in the file
+	private long next;
+
+	// The current block, and the position of its columns in the window
+	private int rows;
+	private Dataset.Algorithm algorithm;
+	private long numSlots;
+	private int numRounds, numBits, numClients;
+	private double clientActivity;
+	private int collisions, requiredRounds, emptySlots, data;
+
+	/**
+	 * @throws IOException If the file can not be read, or is not a file of round data
+	 */
+	public BinaryRoundReader(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			this.size = channel.size();
+			map(0);
+			if(size < 12 || window.getInt(0) != BinaryRoundSink.MAGIC) {
+				throw new IOException(file + " does not contain round data");
+			}
+			if(window.getInt(4) != BinaryRoundSink.VERSION) {
+				throw new IOException(file + " has version " + window.getInt(4) + " instead of " + BinaryRoundSink.VERSION);
+			}
+			byte[] bytes = new byte[window.getInt(8)];
+			window.position(12);
+			window.get(bytes);
+			this.schema = new String(bytes, StandardCharsets.UTF_8);
+			this.algorithms = parseAlgorithms(schema);
+			this.next = 12 + bytes.length;
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public String getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Moves on to the next block.
+	 * @return False if there are no more blocks
+	 * @throws IOException If the file can not be read
+	 */
+	public boolean next() throws IOException {
+		if(next + BinaryRoundSink.BLOCK_HEADER > size) {
+			return false;
+		}
+		if(next + BinaryRoundSink.BLOCK_HEADER > windowStart + window.limit()) {
+			map(next);
+		}
+		int offset = (int) (next - windowStart);
+		int rows = window.getInt(offset);
+		long length = BinaryRoundSink.BLOCK_HEADER + 24L * rows;
+		if(next + length > size) {
+			throw new IOException(file + " ends within a block at " + next);
+		}
+		if(next + length > windowStart + window.limit()) {
+			map(next);
+			offset = 0;
+		}
+		this.rows = rows;
+		this.algorithm = algorithms[window.getInt(offset + 4)];
+		this.numSlots = window.getLong(offset + 8);
+		this.numRounds = window.getInt(offset + 16);
+		this.numBits = window.getInt(offset + 20);
+		this.numClients = window.getInt(offset + 24);
+		this.clientActivity = window.getDouble(offset + 32);
+		collisions = offset + BinaryRoundSink.BLOCK_HEADER;
+		requiredRounds = collisions + 4 * rows;
+		emptySlots = requiredRounds + 4 * rows;
+		data = emptySlots + 8 * rows;
+		next += length;
+		return true;
+	}
+
+	/**
+	 * @return The number of records in the current block
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	public Dataset.Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public long getNumSlots() {
+		return numSlots;
+	}
+
+	public int getNumRounds() {
+		return numRounds;
+	}
+
+	public int getNumBits() {
+		return numBits;
+	}
+
+	public int getNumClients() {
+		return numClients;
+	}
+
+	public double getClientActivity() {
+		return clientActivity;
+	}
+
+	public int getCollisions(int row) {
+		return window.getInt(collisions + 4 * row);
+	}
+
+	public int getRequiredRounds(int row) {
+		return window.getInt(requiredRounds + 4 * row);
+	}
+
+	public long getEmptySlots(int row) {
+		return window.getLong(emptySlots + 8 * row);
+	}
+
+	public double getData(int row) {
+		return window.getDouble(data + 8 * row);
+	}
+
+	/**
+	 * @return A dataset that keeps the records of the current block
+	 */
+	public RoundDataset toDataset() {
+		RoundDataset d = new RoundDataset(algorithm, numSlots, numRounds, numBits, numClients, clientActivity);
+		for(int i = 0; i < rows; i++) {
+			d.add(getCollisions(i), getRequiredRounds(i), getEmptySlots(i), getData(i));
+		}
+		return d;
+	}
+
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	private void map(long start) throws IOException {
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		windowStart = start;
+	}
+
+	/**
+	 * Checks that a schema has the expected columns, and
+	 * looks up the algorithms in the order in which it lists them.
+	 */
+	private Dataset.Algorithm[] parseAlgorithms(String schema) throws IOException {
+		String expected = BinaryRoundSink.SCHEMA;
+		int end = schema.indexOf(']');
+		if(!schema.startsWith("Algorithm:[") || end < 0
+				|| !schema.substring(end).equals(expected.substring(expected.indexOf(']')))) {
+			throw new IOException(file + " has the unknown schema " + schema);
+		}
+		String[] names = schema.substring("Algorithm:[".length(), end).split(", ");
+		Dataset.Algorithm[] algorithms = new Dataset.Algorithm[names.length];
+		for(int i = 0; i < names.length; i++) {
+			try {
+				algorithms[i] = Dataset.Algorithm.valueOf(names[i]);
+			} catch(IllegalArgumentException e) {
+				throw new IOException(file + " contains the unknown algorithm " + names[i]);
+			}
+		}
+		return algorithms;
+	}
+}
@@ -0,0 +1,166 @@
+package tracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *	Appends round data to a binary file in which every column has a fixed-width type.
+ *	All numbers are little-endian. The file starts with a header:
+ *		the magic number "DCRD", the version (int), the length of the schema in bytes (int),
+ *		and the schema as UTF-8 text (see {@link #SCHEMA}).
+ *	The header is followed by blocks. Every block holds up to BLOCK_ROWS records of the same
+ *	configuration. It starts with 40 bytes that describe the configuration:
+ *		the number of records (int), the algorithm (int, its index in the schema),
+ *		the slots (long), the rounds (int), the bits (int), the clients (int),
+ *		4 bytes of padding, and the activity (double).
+ *	The columns of the records follow one after another:
+ *		collisions (int), required rounds (int), empty slots (long), data (double).
+ *	Appending a block never changes what is already in the file, so a file can be extended
+ *	by several sinks one after another. The blocks are read by {@link BinaryRoundReader}.
+ *	Records are collected in a block until it is full, until a record of a different
+ *	configuration is appended, or until the sink is flushed. Complete blocks are handed to
+ *	the {@link ResultWriter}, which also writes the header if the file is empty.
+ *	Like {@link CsvSink}, appending records never fails. Errors are thrown by the next
+ *	call to {@link #flush()} or {@link #close()}.
+ */
+public class BinaryRoundSink {
+
+	static final int MAGIC = 0x44524344; // "DCRD", read as a little-endian int
+	static final int VERSION = 1;
+	static final int BLOCK_HEADER = 40;
+	static final int BLOCK_ROWS = 8192;
+
+	/**
+	 * Describes the columns of the configuration and of the records
+	 */
+	static final String SCHEMA = schema();
+
+	private final File file;
+	private final byte[] header;
+	private final ResultWriter writer = ResultWriter.get();
+
+	// The records of the current block, and the dataset that they belong to
+	private final int[] collisions = new int[BLOCK_ROWS], requiredRounds = new int[BLOCK_ROWS];
+	private final long[] emptySlots = new long[BLOCK_ROWS];
+	private final double[] data = new double[BLOCK_ROWS];
+	private int rows;
+	private RoundDataset source;
+
+	private boolean closed;
+
+	/**
+	 * @param  file The file, which is created if it does not exist yet
+	 * @throws IOException If the file exists, but holds a different schema
+	 */
+	public BinaryRoundSink(File file) throws IOException {
+		this.file = file;
+		byte[] schema = SCHEMA.getBytes(StandardCharsets.UTF_8);
+		this.header = ByteBuffer.allocate(12 + schema.length).order(ByteOrder.LITTLE_ENDIAN)
+			.putInt(MAGIC).putInt(VERSION).putInt(schema.length).put(schema).array();
+		if(file.length() > 0) {
+			BinaryRoundReader reader = new BinaryRoundReader(file);
+			reader.close();
+			if(!reader.getSchema().equals(SCHEMA)) {
+				throw new IOException(file + " has the schema " + reader.getSchema() + " instead of " + SCHEMA);
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Appends a record of a dataset.
+	 */
+	public synchronized void append(RoundDataset source, int collisions, int requiredRounds, long emptySlots, double data) {
+		if(closed) {
+			return;
+		}
+		if(source != this.source || rows == BLOCK_ROWS) {
+			endBlock();
+			this.source = source;
+		}
+		this.collisions[rows] = collisions;
+		this.requiredRounds[rows] = requiredRounds;
+		this.emptySlots[rows] = emptySlots;
+		this.data[rows] = data;
+		rows++;
+	}
+
+	/**
+	 * Appends all records that a dataset has kept.
+	 */
+	public void append(RoundDataset source) {
+		int size = source.size();
+		for(int i = 0; i < size; i++) {
+			append(source, source.getCollisions(i), source.getRequiredRounds(i), source.getEmptySlots(i), source.getData(i));
+		}
+		synchronized(this) {
+			endBlock();
+		}
+	}
+
+	/**
+	 * Writes all collected records to the file, and waits until they are written.
+	 * @throws IOException If any record could not be written
+	 */
+	public void flush() throws IOException {
+		synchronized(this) {
+			endBlock();
+		}
+		writer.flush(file);
+	}
+
+	/**
+	 * Writes all collected records to the file, and waits until they are written.
+	 * Records that are appended afterwards are dropped.
+	 * @throws IOException If any record could not be written
+	 */
+	public void close() throws IOException {
+		synchronized(this) {
+			if(closed) {
+				return;
+			}
+			endBlock();
+			closed = true;
+		}
+		writer.flush(file);
+	}
+
+	private void endBlock() {
+		if(rows == 0) {
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(BLOCK_HEADER + 24 * rows).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(rows)
+			.putInt(source.getAlgorithm().ordinal())
+			.putLong(source.getNumSlots())
+			.putInt(source.getNumRounds())
+			.putInt(source.getNumBits())
+			.putInt(source.getNumClients())
+			.putInt(0)
+			.putDouble(source.getClientActivity());
+		buffer.asIntBuffer().put(collisions, 0, rows);
+		buffer.position(buffer.position() + 4 * rows);
+		buffer.asIntBuffer().put(requiredRounds, 0, rows);
+		buffer.position(buffer.position() + 4 * rows);
+		buffer.asLongBuffer().put(emptySlots, 0, rows);
+		buffer.position(buffer.position() + 8 * rows);
+		buffer.asDoubleBuffer().put(data, 0, rows);
+		buffer.position(buffer.position() + 8 * rows);
+		buffer.flip();
+		writer.append(file, header, buffer);
+		rows = 0;
+	}
+
+	private static String schema() {
+		return "Algorithm:" + Arrays.toString(Dataset.Algorithm.values())
+			+ ",Slots:long,Rounds:int,Bits:int,Clients:int,Activity:double"
+			+ ";Collisions:int,ReqRounds:int,EmptySlots:long,Data:double";
+	}
+}
@@ -0,0 +1,155 @@
+package tracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ *	Appends the lines of a .csv file through a fixed-size buffer, so that datasets
+ *	can write their records as they are taken rather than keeping them in memory.
+ *	The buffer is handed to the {@link ResultWriter} whenever it is full, and at the latest
+ *	FLUSH_INTERVAL milliseconds after a line was appended, even if no more lines are appended.
+ *	The header is only written if the file is empty.
+ *	It can be shared by several threads that take samples concurrently.
+ *	Appending lines never fails. Instead, errors are thrown by the next call to
+ *	{@link #flush()} or {@link #close()}.
+ */
+public class CsvSink {
+
+	// The size of the buffer in bytes
+	private static final int BUFFER_SIZE = 1 << 16;
+	// The longest time in milliseconds that appended lines stay in the buffer
+	private static final long FLUSH_INTERVAL = 2000;
+
+	// Drains the buffers of sinks that no lines have been appended to for a while
+	private static Timer timer;
+
+	private final File file;
+	private final byte[] header;
+	private final ResultWriter writer = ResultWriter.get();
+	private ByteBuffer buffer;
+	private long lastFlush;
+	private boolean closed;
+	private final TimerTask idleFlush;
+
+	/**
+	 * @param  file   The file, which is created if it does not exist yet
+	 * @param  header The header line, without line break, which is written if the file is empty
+	 */
+	public CsvSink(File file, String header) {
+		this.file = file;
+		this.header = (header + '\n').getBytes(StandardCharsets.UTF_8);
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.lastFlush = System.currentTimeMillis();
+		this.idleFlush = new TimerTask() {
+			@Override
+			public void run() {
+				drainIdle();
+			}
+		};
+		// Lines are handed over by the second check after they are appended, at the latest
+		getTimer().schedule(idleFlush, FLUSH_INTERVAL / 2, FLUSH_INTERVAL / 2);
+	}
+
+	private static synchronized Timer getTimer() {
+		if(timer == null) {
+			timer = new Timer("csv-flush", true);
+		}
+		return timer;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Appends a line to the file.
+	 * @param line The line, without line break
+	 */
+	public synchronized void append(CharSequence line) {
+		if(closed) {
+			return;
+		}
+		int length = line.length();
+		if(length + 1 > buffer.remaining()) {
+			drain();
+		}
+		if(length + 1 > buffer.remaining() || !isAscii(line)) {
+			// Lines that are too long or need a multi-byte encoding take the slow path
+			byte[] bytes = (line.toString() + '\n').getBytes(StandardCharsets.UTF_8);
+			if(bytes.length > buffer.remaining()) {
+				drain();
+				writer.append(file, header, ByteBuffer.wrap(bytes));
+				return;
+			}
+			buffer.put(bytes);
+		} else {
+			for(int i = 0; i < length; i++) {
+				buffer.put((byte) line.charAt(i));
+			}
+			buffer.put((byte) '\n');
+		}
+		if(System.currentTimeMillis() - lastFlush > FLUSH_INTERVAL) {
+			drain();
+		}
+	}
+
+	private static boolean isAscii(CharSequence line) {
+		for(int i = 0; i < line.length(); i++) {
+			if(line.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes all buffered lines to the file, and waits until they are written.
+	 * @throws IOException If any line could not be written
+	 */
+	public void flush() throws IOException {
+		synchronized(this) {
+			drain();
+		}
+		writer.flush(file);
+	}
+
+	/**
+	 * Writes all buffered lines to the file, and waits until they are written.
+	 * Lines that are appended afterwards are dropped.
+	 * @throws IOException If any line could not be written
+	 */
+	public void close() throws IOException {
+		synchronized(this) {
+			if(closed) {
+				return;
+			}
+			drain();
+			closed = true;
+		}
+		idleFlush.cancel();
+		writer.flush(file);
+	}
+
+	/**
+	 * Hands the buffer to the writer if it holds lines and has not been
+	 * handed over for half an interval.
+	 */
+	private synchronized void drainIdle() {
+		if(!closed && buffer.position() > 0 && System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL / 2) {
+			drain();
+		}
+	}
+
+	private void drain() {
+		if(buffer.position() > 0) {
+			buffer.flip();
+			writer.append(file, header, buffer);
+			buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+		lastFlush = System.currentTimeMillis();
+	}
+}
@@ -3,8 +3,15 @@ package tracking;
 public abstract class Dataset {
 	public final String namePrefix;
 
+	// The sink that records are appended to as they are added,
+	// or null if the records are kept until the dataset is written
+	private volatile CsvSink sink;
+	// Whether records are dropped as they are added
+	private volatile boolean discarding;
+
 	public enum Algorithm {
 		Footprint,
+		Occupancy,
 		Chaum,
 		Pfitzmann
 	}
@@ -13,10 +20,50 @@ public abstract class Dataset {
 		this.namePrefix = namePrefix;
 	}
 
+	/**
+	 * Appends all records that are added from now on to a sink, instead of keeping them.
+	 * @param sink The sink, which is expected to use the header of this dataset
+	 */
+	public void streamTo(CsvSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Drops all records that are added from now on, instead of keeping or streaming them.
+	 * Summaries of the records are still kept.
+	 */
+	public void discardRecords() {
+		this.discarding = true;
+	}
+
+	public boolean isDiscarding() {
+		return discarding;
+	}
+
+	/**
+	 * @return The sink that records are appended to, or null if they are kept
+	 */
+	public CsvSink getSink() {
+		return sink;
+	}
+
 	@Override
 	public String toString() {
 		return toString(true);
 	}
 
+	/**
+	 * @return The .csv header of the records of this dataset
+	 */
+	public abstract String getHeader();
+
+	/**
+	 * Appends the records that have been kept to a sink, one line per record.
+	 */
+	public abstract void writeTo(CsvSink sink);
+
+	/**
+	 * @return The records that have been kept, one line per record
+	 */
 	public abstract String toString(boolean includeHeader);
-}
\ No newline at end of file
+}
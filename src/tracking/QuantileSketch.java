@@ -0,0 +1,248 @@
+package tracking;
+
+import java.util.Arrays;
+
+/**
+ *	Estimates quantiles of a stream of values in constant space. As long as there are at
+ *	most MAX_DISTINCT distinct values, every distinct value is counted, and quantiles are
+ *	exact; they are interpolated between neighbouring values like R's default quantiles.
+ *	Metrics such as collisions or required rounds rarely take more distinct values.
+ *	Beyond that, the sketch has a relative error of at most ACCURACY. Values are then
+ *	counted in logarithmic buckets: bucket k holds the values in (GAMMA^(k-1), GAMMA^k],
+ *	and is represented by the value with the same relative distance to both bounds.
+ *	Negative values are counted in a mirrored set of buckets, and values closer to zero
+ *	than MIN_VALUE are counted as zero. Infinite and NaN values are counted on their own,
+ *	and ranked below (negative infinity) and above (positive infinity, then NaN) all others.
+ *	Sketches can be merged by adding their counts, so samples can be summarized in parts
+ *	and combined afterwards.
+ */
+public class QuantileSketch {
+
+	public static final double ACCURACY = 0.01;
+	private static final double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+	private static final double MIN_VALUE = 1e-9;
+	private static final int MAX_DISTINCT = 256;
+
+	// The sorted distinct values and their counts,
+	// or null once there are too many distinct values
+	private double[] values = new double[8];
+	private long[] counts = new long[8];
+	private int distinct;
+
+	private final Buckets positive = new Buckets(), negative = new Buckets();
+	private long zeros;
+	// The values that are neither exact nor in buckets
+	private long negativeInfinities, positiveInfinities, nans;
+	private long count;
+
+	/**
+	 * Adds a value to the sketch.
+	 */
+	public void add(double value) {
+		add(value, 1);
+	}
+
+	private void add(double value, long n) {
+		count += n;
+		if(Double.isNaN(value)) {
+			nans += n;
+			return;
+		} else if(value == Double.POSITIVE_INFINITY) {
+			positiveInfinities += n;
+			return;
+		} else if(value == Double.NEGATIVE_INFINITY) {
+			negativeInfinities += n;
+			return;
+		}
+		if(values != null) {
+			int i = Arrays.binarySearch(values, 0, distinct, value);
+			if(i >= 0) {
+				counts[i] += n;
+				return;
+			}
+			if(distinct < MAX_DISTINCT) {
+				i = -i - 1;
+				if(distinct == values.length) {
+					values = Arrays.copyOf(values, 2 * distinct);
+					counts = Arrays.copyOf(counts, 2 * distinct);
+				}
+				System.arraycopy(values, i, values, i + 1, distinct - i);
+				System.arraycopy(counts, i, counts, i + 1, distinct - i);
+				values[i] = value;
+				counts[i] = n;
+				distinct++;
+				return;
+			}
+			for(int k = 0; k < distinct; k++) {
+				count(values[k], counts[k]);
+			}
+			values = null;
+			counts = null;
+		}
+		count(value, n);
+	}
+
+	private void count(double value, long n) {
+		if(value > MIN_VALUE) {
+			positive.increment(key(value), n);
+		} else if(value < -MIN_VALUE) {
+			negative.increment(key(-value), n);
+		} else {
+			zeros += n;
+		}
+	}
+
+	/**
+	 * Adds all values of another sketch to this sketch.
+	 */
+	public void merge(QuantileSketch other) {
+		negativeInfinities += other.negativeInfinities;
+		positiveInfinities += other.positiveInfinities;
+		nans += other.nans;
+		if(other.values != null) {
+			count += other.negativeInfinities + other.positiveInfinities + other.nans;
+			for(int k = 0; k < other.distinct; k++) {
+				add(other.values[k], other.counts[k]);
+			}
+			return;
+		}
+		if(values != null) {
+			// Counting the values of this sketch in buckets allows adding the buckets
+			for(int k = 0; k < distinct; k++) {
+				count(values[k], counts[k]);
+			}
+			values = null;
+			counts = null;
+		}
+		positive.merge(other.positive);
+		negative.merge(other.negative);
+		zeros += other.zeros;
+		count += other.count;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @param  q A quantile between 0 and 1
+	 * @return An estimate of the q-quantile of the added values,
+	 * or NaN if no value has been added
+	 */
+	public double getQuantile(double q) {
+		if(count == 0) {
+			return Double.NaN;
+		}
+		// The rank of the quantile among all values, starting at 0
+		double h = q * (count - 1);
+		long rank = (long) h;
+		double lo = valueOfRank(rank);
+		if(values == null || h == rank || rank + 1 >= count || isSpecial(lo)) {
+			return lo;
+		}
+		double hi = valueOfRank(rank + 1);
+		// Interpolating towards an infinite value would yield NaN
+		return isSpecial(hi) ? hi : lo + (h - rank) * (hi - lo);
+	}
+
+	private static boolean isSpecial(double value) {
+		return Double.isInfinite(value) || Double.isNaN(value);
+	}
+
+	/**
+	 * @return The value with the given rank among all values, starting at 0
+	 */
+	private double valueOfRank(long rank) {
+		if(rank < negativeInfinities) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		rank -= negativeInfinities;
+		long finite = count - negativeInfinities - positiveInfinities - nans;
+		if(rank < finite) {
+			return values != null ? exactValueOfRank(rank) : bucketValueOfRank(rank);
+		}
+		rank -= finite;
+		return rank < positiveInfinities ? Double.POSITIVE_INFINITY : Double.NaN;
+	}
+
+	private double bucketValueOfRank(long rank) {
+		// Negative values are ranked from the largest key downwards
+		if(rank < negative.total) {
+			return -value(negative.keyOfRank(negative.total - 1 - rank));
+		}
+		rank -= negative.total;
+		if(rank < zeros) {
+			return 0d;
+		}
+		return value(positive.keyOfRank(rank - zeros));
+	}
+
+	private double exactValueOfRank(long rank) {
+		long seen = 0;
+		for(int k = 0; k < distinct; k++) {
+			seen += counts[k];
+			if(seen > rank) {
+				return values[k];
+			}
+		}
+		throw new IllegalStateException("Rank " + rank + " exceeds the " + count + " counted values");
+	}
+
+	private static int key(double value) {
+		return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+	}
+
+	private static double value(int key) {
+		return 2 * Math.pow(GAMMA, key) / (GAMMA + 1);
+	}
+
+	/**
+	 * The counts of a contiguous range of keys.
+	 */
+	private static class Buckets {
+		private long[] counts = new long[0];
+		// The key of counts[0]
+		private int offset;
+		private long total;
+
+		private void increment(int key, long n) {
+			if(counts.length == 0) {
+				counts = new long[16];
+				offset = key - 8;
+			} else if(key < offset || key >= offset + counts.length) {
+				int lo = Math.min(key, offset), hi = Math.max(key, offset + counts.length - 1);
+				// Leave some room on both sides, so that the range rarely grows again
+				int margin = (hi - lo + 1) / 2 + 1;
+				long[] grown = new long[hi - lo + 1 + 2 * margin];
+				System.arraycopy(counts, 0, grown, offset - lo + margin, counts.length);
+				counts = grown;
+				offset = lo - margin;
+			}
+			counts[key - offset] += n;
+			total += n;
+		}
+
+		private void merge(Buckets other) {
+			for(int i = 0; i < other.counts.length; i++) {
+				if(other.counts[i] != 0) {
+					increment(other.offset + i, other.counts[i]);
+				}
+			}
+		}
+
+		/**
+		 * @return The key of the bucket of the value with the given rank
+		 */
+		private int keyOfRank(long rank) {
+			long seen = 0;
+			for(int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if(seen > rank) {
+					return offset + i;
+				}
+			}
+			throw new IllegalStateException("Rank " + rank + " exceeds the " + total + " counted values");
+		}
+	}
+}
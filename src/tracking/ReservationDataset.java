@@ -1,15 +1,35 @@
 package tracking;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
+/**
+ *	The reservations of every client. Like {@link RoundDataset}, the records are kept
+ *	in one primitive array per column. The withdraw behaviours are dictionary-encoded:
+ *	every distinct behaviour is kept once, and records refer to it by its index.
+ */
 public class ReservationDataset extends Dataset{
 
+	private static final int INITIAL_CAPACITY = 16;
+
 	private final boolean isAdvanced;
 	private final Algorithm algorithm;
 	private final int numClients;
 	private final double clientActivity;
 
-	private final ArrayList<Record> records;
+	// The columns of the records, and the number of records
+	private int[] userIDs, attempts, withdrawBehaviours;
+	private long[] bytes;
+	private double[] chances;
+	private int size;
+
+	// The distinct withdraw behaviours, and their indices
+	private final ArrayList<String> behaviours = new ArrayList<String>();
+	private final HashMap<String, Integer> behaviourIndex = new HashMap<String, Integer>();
+
+	// Holds the line of a streamed record
+	private final StringBuilder line = new StringBuilder();
 
 	public ReservationDataset(Algorithm algorithm, int numClients, double clientActivity) {
 		super("reservation-data");
@@ -17,69 +37,97 @@ public class ReservationDataset extends Dataset{
 		this.numClients = numClients;
 		this.clientActivity = clientActivity;
 		this.isAdvanced = algorithm == Algorithm.Footprint;
-		records = new ArrayList<Record>();
+		userIDs = new int[INITIAL_CAPACITY];
+		attempts = new int[INITIAL_CAPACITY];
+		withdrawBehaviours = new int[INITIAL_CAPACITY];
+		bytes = new long[INITIAL_CAPACITY];
+		chances = new double[INITIAL_CAPACITY];
 	}
 
 	public boolean isAdvanced() {
 		return isAdvanced;
 	}
 
-	public void add(int userID, long bytes, int attempt, double chance, String withdrawBehaviour) {
-		records.add(new Record(algorithm, numClients, clientActivity, userID, bytes, attempt, chance, withdrawBehaviour));
+	public synchronized void add(int userID, long bytes, int attempt, double chance, String withdrawBehaviour) {
+		if(isDiscarding()) {
+			return;
+		}
+		CsvSink sink = getSink();
+		if(sink != null) {
+			line.setLength(0);
+			appendRecord(line, userID, bytes, attempt, chance, withdrawBehaviour);
+			sink.append(line);
+			return;
+		}
+		if(size == userIDs.length) {
+			int capacity = size + (size >> 1);
+			userIDs = Arrays.copyOf(userIDs, capacity);
+			attempts = Arrays.copyOf(attempts, capacity);
+			withdrawBehaviours = Arrays.copyOf(withdrawBehaviours, capacity);
+			this.bytes = Arrays.copyOf(this.bytes, capacity);
+			chances = Arrays.copyOf(chances, capacity);
+		}
+		Integer behaviour = behaviourIndex.get(withdrawBehaviour);
+		if(behaviour == null) {
+			behaviour = behaviours.size();
+			behaviours.add(withdrawBehaviour);
+			behaviourIndex.put(withdrawBehaviour, behaviour);
+		}
+		userIDs[size] = userID;
+		attempts[size] = attempt;
+		withdrawBehaviours[size] = behaviour;
+		this.bytes[size] = bytes;
+		chances[size] = chance;
+		size++;
 	}
 
 	public void add(int userID, long bytes, int attempt) {
 		add(userID, bytes, attempt, 0d, "");
 	}
 
+	/**
+	 * @return The number of records that have been kept
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
 	@Override
-	public String toString(boolean includeHeader) {
+	public synchronized void writeTo(CsvSink sink) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < size; i++) {
+			sb.setLength(0);
+			appendRecord(sb, userIDs[i], bytes[i], attempts[i], chances[i], behaviours.get(withdrawBehaviours[i]));
+			sink.append(sb);
+		}
+	}
+
+	@Override
+	public synchronized String toString(boolean includeHeader) {
 		StringBuilder sb = new StringBuilder();
 		if(includeHeader) {
-			sb.append(getHeader() + '\n');
+			sb.append(getHeader()).append('\n');
 		}
-		for(Record r: records) {
-			sb.append(r.toString() + '\n');
+		for(int i = 0; i < size; i++) {
+			appendRecord(sb, userIDs[i], bytes[i], attempts[i], chances[i], behaviours.get(withdrawBehaviours[i]));
+			sb.append('\n');
 		}
 		return sb.toString();
 	}
 
-	private String getHeader() {
+	@Override
+	public String getHeader() {
 		return "Algorithm,Clients,Activity,userId,Bytes,Attempt,Chance,WithdrawBehaviour";
 	}
 
-	protected class Record {
-		public final Algorithm algorithm;
-		public final int numClients;
-		public final double clientActivity;
-		public final int userID;
-		public final long bytes;
-		public final int attempt;
-		public final double chance;
-		public final String withdrawBehaviour;
-
-		public Record(Algorithm algorithm, int numClients, double clientActivity, int userID, long bytes, int attempt, double chance, String withdrawBehaviour) {
-			this.algorithm = algorithm;
-			this.numClients = numClients;
-			this.clientActivity = clientActivity;
-			this.userID = userID;
-			this.bytes = bytes;
-			this.attempt = attempt;
-			this.chance = chance;
-			this.withdrawBehaviour = withdrawBehaviour;
-		}
-
-		@Override
-		public String toString() {
-			return 
-				algorithm.name() + "," +
-				numClients + "," +
-				clientActivity + "," +
-				userID + "," +
-				bytes + "," +
-				attempt + "," +
-				chance + "," +
-				withdrawBehaviour;
-		}
+	private void appendRecord(StringBuilder sb, int userID, long bytes, int attempt, double chance, String withdrawBehaviour) {
+		sb.append(algorithm.name()).append(',')
+			.append(numClients).append(',')
+			.append(clientActivity).append(',')
+			.append(userID).append(',')
+			.append(bytes).append(',')
+			.append(attempt).append(',')
+			.append(chance).append(',')
+			.append(withdrawBehaviour);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,237 @@
+package tracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *	Appends the output of all sinks to their files on a single background thread.
+ *	Sinks queue their buffers and continue, unless the queue is full, in which case they wait
+ *	until the writer catches up. The writer appends all queued buffers of a file at once,
+ *	while it holds an exclusive lock on the file. Several simulators can therefore append to
+ *	the same file without interleaving their buffers. Every buffer carries the header of its
+ *	file, which is written first if the file is empty. This is decided under the lock, so
+ *	only one simulator writes the header.
+ *	Sinks only queue complete lines or blocks, so that every buffer can be appended on its own.
+ *	Errors are kept per file, and printed when they occur. The output of a file is dropped
+ *	from its first error until the error is thrown by the next call to {@link #flush(File)},
+ *	so that no output is lost without an error. Afterwards, the file is written again.
+ */
+public final class ResultWriter {
+	// The number of buffers that can be queued before sinks wait
+	private static final int QUEUE_CAPACITY = 64;
+	// The interval in milliseconds in which waiting sinks check whether the writer is still running
+	private static final long POLL_INTERVAL = 1000;
+
+	private static ResultWriter instance;
+
+	private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(QUEUE_CAPACITY);
+	// The first error of every file
+	private final Map<File, IOException> errors = new HashMap<File, IOException>();
+	// Whether the writer thread has stopped, after which nothing is written
+	private volatile boolean stopped;
+
+	/**
+	 * Bytes that are appended to a file, or a marker that
+	 * is reached once all previous batches have been written
+	 */
+	private static class Batch {
+		final File file;
+		final byte[] header;
+		final ByteBuffer bytes;
+		final CountDownLatch written;
+
+		Batch(File file, byte[] header, ByteBuffer bytes, CountDownLatch written) {
+			this.file = file;
+			this.header = header;
+			this.bytes = bytes;
+			this.written = written;
+		}
+	}
+
+	/**
+	 * @return The writer that all sinks share
+	 */
+	public static synchronized ResultWriter get() {
+		if(instance == null) {
+			instance = new ResultWriter();
+		}
+		return instance;
+	}
+
+	private ResultWriter() {
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "result-writer");
+		// Sinks are flushed on exit, which waits for the writer
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Queues bytes that are appended to a file. Waits while the queue is full.
+	 * @param file   The file, which is created if it does not exist
+	 * @param header The header that is written if the file is empty
+	 * @param bytes  The bytes, which must not be changed afterwards
+	 */
+	public void append(File file, byte[] header, ByteBuffer bytes) {
+		File f = file.getAbsoluteFile();
+		try {
+			if(!offer(new Batch(f, header, bytes, null))) {
+				fail(f, new IOException("The result writer has stopped, " + f + " is not written"));
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(f, new IOException("Interrupted while queueing output for " + f, e));
+		}
+	}
+
+	/**
+	 * Waits until all bytes that have been queued so far are written.
+	 * @param file The file whose errors are thrown
+	 * @throws IOException The first error that occurred while appending to the file since
+	 * the last flush. Bytes that were queued since the error have been dropped.
+	 */
+	public void flush(File file) throws IOException {
+		CountDownLatch written = new CountDownLatch(1);
+		try {
+			boolean queued = offer(new Batch(null, null, null, written));
+			while(queued && !written.await(POLL_INTERVAL, TimeUnit.MILLISECONDS) && !stopped);
+			if(written.getCount() > 0) {
+				throw new IOException("The result writer has stopped, " + file + " is not written");
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing " + file, e);
+		}
+		synchronized(errors) {
+			IOException error = errors.remove(file.getAbsoluteFile());
+			if(error != null) {
+				throw error;
+			}
+		}
+	}
+
+	/**
+	 * Queues a batch, and waits while the queue is full.
+	 * @return Whether the batch was queued, which is not the case once the writer has stopped
+	 */
+	private boolean offer(Batch batch) throws InterruptedException {
+		while(!queue.offer(batch, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+			if(stopped) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Keeps the first error of a file, which drops all later batches
+	 * of the file until the error is thrown by a flush.
+	 */
+	private void fail(File file, IOException error) {
+		synchronized(errors) {
+			if(errors.containsKey(file)) {
+				return;
+			}
+			errors.put(file, error);
+		}
+		System.err.println("Could not write " + file + ", its output is dropped until it is flushed: " + error.getMessage());
+	}
+
+	private void writeLoop() {
+		List<Batch> batches = new ArrayList<Batch>();
+		try {
+			while(true) {
+				try {
+					batches.add(queue.take());
+				} catch(InterruptedException e) {
+					return;
+				}
+				queue.drainTo(batches);
+				// Consecutive batches of the same file are appended at once
+				int i = 0;
+				while(i < batches.size()) {
+					Batch first = batches.get(i);
+					if(first.file == null) {
+						first.written.countDown();
+						i++;
+						continue;
+					}
+					int j = i + 1;
+					while(j < batches.size() && first.file.equals(batches.get(j).file)) {
+						j++;
+					}
+					write(batches.subList(i, j));
+					i = j;
+				}
+				batches.clear();
+			}
+		} finally {
+			// Nothing is written anymore, so nobody may wait for it
+			stopped = true;
+			queue.drainTo(batches);
+			for(Batch b: batches) {
+				if(b.file == null) {
+					b.written.countDown();
+				}
+			}
+		}
+	}
+
+	private void write(List<Batch> batches) {
+		File file = batches.get(0).file;
+		synchronized(errors) {
+			if(errors.containsKey(file)) {
+				return;
+			}
+		}
+		try {
+			File parent = file.getParentFile();
+			if(parent != null) {
+				parent.mkdirs();
+			}
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			try {
+				FileLock lock = channel.lock();
+				try {
+					if(channel.size() == 0 && batches.get(0).header != null) {
+						write(channel, ByteBuffer.wrap(batches.get(0).header));
+					}
+					for(Batch b: batches) {
+						write(channel, b.bytes);
+					}
+				} finally {
+					lock.release();
+				}
+			} finally {
+				channel.close();
+			}
+		} catch(IOException e) {
+			fail(file, e);
+		} catch(RuntimeException e) {
+			// e.g. an OverlappingFileLockException, which must not stop the writer
+			fail(file, new IOException("Could not write " + file, e));
+		}
+	}
+
+	private static void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+		while(bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+}
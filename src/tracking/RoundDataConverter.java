@@ -0,0 +1,107 @@
+package tracking;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ *	Converts round data between .csv files and the binary files of {@link BinaryRoundSink}.
+ *	Records are streamed from one file to the other, so files of any size can be converted.
+ *	If the target file exists, the records are appended to it.
+ */
+public class RoundDataConverter {
+
+	/**
+	 * Converts a .csv file to a binary file, or a binary file to a .csv file.
+	 * The format of each file is determined by its extension: .csv or .bin.
+	 * @return The number of converted records
+	 * @throws IOException If either file can not be used
+	 */
+	public static long convert(File in, File out) throws IOException {
+		if(hasExtension(in, ".csv") && hasExtension(out, ".bin")) {
+			return csvToBinary(in, out);
+		} else if(hasExtension(in, ".bin") && hasExtension(out, ".csv")) {
+			return binaryToCsv(in, out);
+		}
+		throw new IOException("Either " + in + " or " + out + " has to be a .csv file, and the other one a .bin file");
+	}
+
+	public static long csvToBinary(File in, File out) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(in));
+		BinaryRoundSink sink = null;
+		long records = 0;
+		try {
+			sink = new BinaryRoundSink(out);
+			String header = reader.readLine();
+			if(header == null || !header.equals(RoundDataset.HEADER)) {
+				throw new IOException(in + " does not start with the header " + RoundDataset.HEADER);
+			}
+			// Consecutive records with the same configuration share a dataset
+			RoundDataset d = null;
+			String configuration = null;
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.isEmpty()) {
+					continue;
+				}
+				String[] fields = line.split(",");
+				if(fields.length != 10) {
+					throw new IOException(in + " contains the malformed record " + line);
+				}
+				// The configuration is described by the first 6 fields
+				int end = -1;
+				for(int k = 0; k < 6; k++) {
+					end = line.indexOf(',', end + 1);
+				}
+				String c = line.substring(0, end);
+				if(!c.equals(configuration)) {
+					configuration = c;
+					d = new RoundDataset(Dataset.Algorithm.valueOf(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+						Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Double.parseDouble(fields[5]));
+					d.streamTo(sink);
+				}
+				d.add(Integer.parseInt(fields[6]), Integer.parseInt(fields[7]), Long.parseLong(fields[8]), Double.parseDouble(fields[9]));
+				records++;
+			}
+		} catch(IllegalArgumentException e) {
+			throw new IOException(in + " contains a malformed record", e);
+		} finally {
+			reader.close();
+			if(sink != null) {
+				sink.close();
+			}
+		}
+		return records;
+	}
+
+	public static long binaryToCsv(File in, File out) throws IOException {
+		BinaryRoundReader reader = new BinaryRoundReader(in);
+		CsvSink sink = null;
+		long records = 0;
+		try {
+			while(reader.next()) {
+				RoundDataset d = new RoundDataset(reader.getAlgorithm(), reader.getNumSlots(), reader.getNumRounds(),
+					reader.getNumBits(), reader.getNumClients(), reader.getClientActivity());
+				if(sink == null) {
+					sink = new CsvSink(out, RoundDataset.HEADER);
+				}
+				d.streamTo(sink);
+				for(int i = 0; i < reader.getRows(); i++) {
+					d.add(reader.getCollisions(i), reader.getRequiredRounds(i), reader.getEmptySlots(i), reader.getData(i));
+				}
+				records += reader.getRows();
+			}
+		} finally {
+			reader.close();
+			if(sink != null) {
+				sink.close();
+			}
+		}
+		return records;
+	}
+
+	private static boolean hasExtension(File f, String extension) {
+		return f.getName().toLowerCase().endsWith(extension);
+	}
+}
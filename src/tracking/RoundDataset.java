@@ -1,16 +1,45 @@
 package tracking;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
+/**
+ *	The outcome of every sample of a configuration. The fields that are the same for
+ *	all samples are only kept once, and the others are kept in one primitive array
+ *	per column, so that no object is allocated per sample.
+ */
 public class RoundDataset extends Dataset{
 
-	private final ArrayList<Record> records;
+	public static final String HEADER = "Algorithm,Slots,Rounds,Bits,Clients,Activity,Collisions,ReqRounds,EmptySlots,Data";
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// The columns of the records, and the number of records
+	private int[] collisions, requiredRounds;
+	private long[] emptySlots;
+	private double[] data;
+	private int size;
+
+	// The summaries of the columns, which include discarded and streamed records
+	private final SummaryStatistics collisionStats = new SummaryStatistics();
+	private final SummaryStatistics roundStats = new SummaryStatistics();
+	private final SummaryStatistics emptySlotStats = new SummaryStatistics();
+	private final SummaryStatistics dataStats = new SummaryStatistics();
+
+	// The binary file that records are appended to, or null
+	private volatile BinaryRoundSink binarySink;
+
+	// The binary file that all records are copied to, or null
+	private volatile BinaryRoundSink copySink;
+
+	// Holds the line of a streamed record
+	private final StringBuilder line = new StringBuilder();
 
 	private final Algorithm algorithm;
-	private final int numSlots, numRounds, numBits, numClients;
+	private final long numSlots;
+	private final int numRounds, numBits, numClients;
 	private final double clientActivity;
 
-	public RoundDataset(Algorithm algorithm, int numSlots, int numRounds, int numBits, int numClients, double clientActivity) {
+	public RoundDataset(Algorithm algorithm, long numSlots, int numRounds, int numBits, int numClients, double clientActivity) {
 		super("round-data");
 		this.algorithm = algorithm;
 		this.numSlots = numSlots;
@@ -18,53 +47,199 @@ public class RoundDataset extends Dataset{
 		this.numBits = numBits;
 		this.numClients = numClients;
 		this.clientActivity = clientActivity;
-		records = new ArrayList<Record>();
+		collisions = new int[INITIAL_CAPACITY];
+		requiredRounds = new int[INITIAL_CAPACITY];
+		emptySlots = new long[INITIAL_CAPACITY];
+		data = new double[INITIAL_CAPACITY];
+	}
+
+	public synchronized void add(int collisions, int requiredRounds, long emptySlots, double data) {
+		collisionStats.add(collisions);
+		roundStats.add(requiredRounds);
+		emptySlotStats.add(emptySlots);
+		dataStats.add(data);
+		BinaryRoundSink copySink = this.copySink;
+		if(copySink != null) {
+			copySink.append(this, collisions, requiredRounds, emptySlots, data);
+		}
+		if(isDiscarding()) {
+			return;
+		}
+		CsvSink sink = getSink();
+		BinaryRoundSink binarySink = this.binarySink;
+		if(sink != null || binarySink != null) {
+			if(sink != null) {
+				line.setLength(0);
+				appendRecord(line, collisions, requiredRounds, emptySlots, data);
+				sink.append(line);
+			}
+			if(binarySink != null) {
+				binarySink.append(this, collisions, requiredRounds, emptySlots, data);
+			}
+			return;
+		}
+		if(size == this.collisions.length) {
+			int capacity = size + (size >> 1);
+			this.collisions = Arrays.copyOf(this.collisions, capacity);
+			this.requiredRounds = Arrays.copyOf(this.requiredRounds, capacity);
+			this.emptySlots = Arrays.copyOf(this.emptySlots, capacity);
+			this.data = Arrays.copyOf(this.data, capacity);
+		}
+		this.collisions[size] = collisions;
+		this.requiredRounds[size] = requiredRounds;
+		this.emptySlots[size] = emptySlots;
+		this.data[size] = data;
+		size++;
+	}
+
+	/**
+	 * Appends all records that are added from now on to a binary file, instead of
+	 * keeping them. They are also appended to the .csv sink, if there is one.
+	 */
+	public void streamTo(BinaryRoundSink binarySink) {
+		this.binarySink = binarySink;
+	}
+
+	public BinaryRoundSink getBinarySink() {
+		return binarySink;
+	}
+
+	/**
+	 * Appends all records that are added from now on to a binary file, in addition
+	 * to keeping, streaming or discarding them, e.g. to store them in a cache.
+	 * @param copySink The file, or null to stop copying records
+	 */
+	public void copyTo(BinaryRoundSink copySink) {
+		this.copySink = copySink;
+	}
+
+	/**
+	 * @return The number of records that have been kept
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	// The records that have been kept, which must only
+	// be read once no more records are added
+
+	public int getCollisions(int record) {
+		return collisions[record];
+	}
+
+	public int getRequiredRounds(int record) {
+		return requiredRounds[record];
+	}
+
+	public long getEmptySlots(int record) {
+		return emptySlots[record];
+	}
+
+	public double getData(int record) {
+		return data[record];
+	}
+
+	public Algorithm getAlgorithm() {
+		return algorithm;
 	}
 
-	public void add(int collisions, int requiredRounds, int emptySlots, double data) {
-		records.add(new Record(collisions, requiredRounds, emptySlots, data));
+	public long getNumSlots() {
+		return numSlots;
+	}
+
+	public int getNumRounds() {
+		return numRounds;
+	}
+
+	public int getNumBits() {
+		return numBits;
+	}
+
+	public int getNumClients() {
+		return numClients;
+	}
+
+	public double getClientActivity() {
+		return clientActivity;
+	}
+
+	public SummaryStatistics getCollisionStatistics() {
+		return collisionStats;
+	}
+
+	public SummaryStatistics getRoundStatistics() {
+		return roundStats;
+	}
+
+	public SummaryStatistics getEmptySlotStatistics() {
+		return emptySlotStats;
+	}
+
+	public SummaryStatistics getDataStatistics() {
+		return dataStats;
+	}
+
+	/**
+	 * Adds the summaries of another dataset to the summaries of this dataset,
+	 * as if the records of the other dataset had been added to this one.
+	 */
+	public synchronized void mergeSummaries(RoundDataset other) {
+		collisionStats.merge(other.collisionStats);
+		roundStats.merge(other.roundStats);
+		emptySlotStats.merge(other.emptySlotStats);
+		dataStats.merge(other.dataStats);
+	}
+
+	/**
+	 * @return A line that summarizes all records that have been added,
+	 * including those that have been streamed or discarded
+	 */
+	public synchronized String getSummary() {
+		return
+			"Data " + dataStats + ", " +
+			"ReqRounds " + roundStats + ", " +
+			"Collisions " + collisionStats + ", " +
+			"EmptySlots " + emptySlotStats;
 	}
 
 	@Override
-	public String toString(boolean includeHeader) {
+	public synchronized void writeTo(CsvSink sink) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < size; i++) {
+			sb.setLength(0);
+			appendRecord(sb, collisions[i], requiredRounds[i], emptySlots[i], data[i]);
+			sink.append(sb);
+		}
+	}
+
+	@Override
+	public synchronized String toString(boolean includeHeader) {
 		StringBuilder sb = new StringBuilder();
 		if(includeHeader) {
-			sb.append(getHeader() + '\n');
+			sb.append(getHeader()).append('\n');
 		}
-		for(Record r: records) {
-			sb.append(r.toString() + '\n');
+		for(int i = 0; i < size; i++) {
+			appendRecord(sb, collisions[i], requiredRounds[i], emptySlots[i], data[i]);
+			sb.append('\n');
 		}
 		return sb.toString();
 	}
 
-	private String getHeader() {
-		return "Algorithm,Slots,Rounds,Bits,Clients,Activity,Collisions,ReqRounds,EmptySlots,Data";
+	@Override
+	public String getHeader() {
+		return HEADER;
 	}
 
-	protected class Record {
-		public final int collisions, requiredRounds, emptySlots;
-		public final double data;
-
-		public Record(int collisions, int requiredRounds, int emptySlots, double data) {
-			this.collisions = collisions;
-			this.requiredRounds = requiredRounds;
-			this.emptySlots = emptySlots;
-			this.data = data;
-		}
-
-		@Override
-		public String toString() {
-			return
-				algorithm.toString() + ","+
-				numSlots +","+
-				numRounds +","+
-				numBits +","+
-				numClients +","+
-				clientActivity +","+
-				collisions +","+
-				requiredRounds +","+
-				emptySlots + "," +
-				data;
-		}
+	private void appendRecord(StringBuilder sb, int collisions, int requiredRounds, long emptySlots, double data) {
+		sb.append(algorithm.toString()).append(',')
+			.append(numSlots).append(',')
+			.append(numRounds).append(',')
+			.append(numBits).append(',')
+			.append(numClients).append(',')
+			.append(clientActivity).append(',')
+			.append(collisions).append(',')
+			.append(requiredRounds).append(',')
+			.append(emptySlots).append(',')
+			.append(data);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,264 @@
+package tracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ *	Summarizes the records of round data files per configuration, in a single pass over the
+ *	files. The files are split into chunks: .csv files into ranges of bytes, binary files into
+ *	sets of blocks. Every chunk is summarized on its own, and the summaries of all chunks are
+ *	merged afterwards. A configuration is summarized by a {@link RoundDataset} that discards
+ *	its records, so the memory depends on the number of configurations, not of records.
+ */
+public class RoundSummarizer {
+
+	public static final String HEADER = "Algorithm,Slots,Rounds,Bits,Clients,Activity,Samples,"
+		+ columns("Data") + "," + columns("ReqRounds") + "," + columns("Collisions") + "," + columns("EmptySlots");
+
+	// The size of the chunks of .csv files in bytes
+	private static final long CHUNK_SIZE = 16L << 20;
+
+	private final ExecutorService pool;
+	private final int parallelism;
+
+	/**
+	 * @param pool        The threads on which the chunks are summarized
+	 * @param parallelism The number of threads of the pool
+	 */
+	public RoundSummarizer(ExecutorService pool, int parallelism) {
+		this.pool = pool;
+		this.parallelism = Math.max(parallelism, 1);
+	}
+
+	/**
+	 * Summarizes files of round data, and writes one line per configuration to a .csv file.
+	 * The lines are sorted by configuration. If the target file exists, it is replaced.
+	 * @param in  The .csv or .bin files
+	 * @param out The .csv file of the summaries
+	 * @return The number of configurations
+	 * @throws IOException If any file can not be read or written
+	 */
+	public int summarize(List<File> in, File out) throws IOException {
+		List<Callable<Map<String, RoundDataset>>> chunks = new ArrayList<Callable<Map<String, RoundDataset>>>();
+		for(File f: in) {
+			if(f.getName().toLowerCase().endsWith(".csv")) {
+				long size = f.length();
+				for(long start = 0; start < size; start += CHUNK_SIZE) {
+					chunks.add(csvChunk(f, start, Math.min(size, start + CHUNK_SIZE)));
+				}
+			} else {
+				for(int part = 0; part < parallelism; part++) {
+					chunks.add(binaryChunk(f, part, parallelism));
+				}
+			}
+		}
+
+		Map<String, RoundDataset> summaries = new HashMap<String, RoundDataset>();
+		try {
+			for(Future<Map<String, RoundDataset>> chunk: pool.invokeAll(chunks)) {
+				for(RoundDataset d: chunk.get().values()) {
+					String key = key(d);
+					RoundDataset summary = summaries.get(key);
+					if(summary == null) {
+						summaries.put(key, d);
+					} else {
+						summary.mergeSummaries(d);
+					}
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while summarizing", e);
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Could not summarize", e.getCause());
+		}
+
+		List<RoundDataset> sorted = new ArrayList<RoundDataset>(summaries.values());
+		Collections.sort(sorted, new Comparator<RoundDataset>() {
+			@Override
+			public int compare(RoundDataset a, RoundDataset b) {
+				int c = a.getAlgorithm().compareTo(b.getAlgorithm());
+				if(c == 0) c = Long.compare(a.getNumSlots(), b.getNumSlots());
+				if(c == 0) c = Integer.compare(a.getNumRounds(), b.getNumRounds());
+				if(c == 0) c = Integer.compare(a.getNumBits(), b.getNumBits());
+				if(c == 0) c = Integer.compare(a.getNumClients(), b.getNumClients());
+				if(c == 0) c = Double.compare(a.getClientActivity(), b.getClientActivity());
+				return c;
+			}
+		});
+		out.delete();
+		CsvSink sink = new CsvSink(out, HEADER);
+		StringBuilder line = new StringBuilder();
+		for(RoundDataset d: sorted) {
+			line.setLength(0);
+			line.append(key(d)).append(',').append(d.getDataStatistics().getCount());
+			appendStatistics(line, d.getDataStatistics());
+			appendStatistics(line, d.getRoundStatistics());
+			appendStatistics(line, d.getCollisionStatistics());
+			appendStatistics(line, d.getEmptySlotStatistics());
+			sink.append(line);
+		}
+		sink.close();
+		return sorted.size();
+	}
+
+	/**
+	 * Summarizes the lines of a .csv file that start in a range of bytes.
+	 */
+	private static Callable<Map<String, RoundDataset>> csvChunk(final File f, final long start, final long end) {
+		return new Callable<Map<String, RoundDataset>>() {
+			@Override
+			public Map<String, RoundDataset> call() throws IOException {
+				Map<String, RoundDataset> summaries = new HashMap<String, RoundDataset>();
+				FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+				try {
+					ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+					StringBuilder line = new StringBuilder();
+					// The position of the next byte, and of the first byte of the current line.
+					// Reading starts one byte early, so that a line that starts exactly at the
+					// start of the range is not mistaken for the end of the previous line.
+					long position = Math.max(start - 1, 0);
+					long lineStart = position;
+					boolean skip = start > 0;
+					channel.position(position);
+					buffer.flip();
+					while(lineStart < end) {
+						if(!buffer.hasRemaining()) {
+							buffer.clear();
+							if(channel.read(buffer) < 0) {
+								break;
+							}
+							buffer.flip();
+						}
+						byte b = buffer.get();
+						position++;
+						if(b != '\n') {
+							line.append((char) b);
+							continue;
+						}
+						if(!skip) {
+							summarizeLine(f, line, lineStart == 0, summaries);
+						}
+						skip = false;
+						line.setLength(0);
+						lineStart = position;
+					}
+					if(lineStart < end && line.length() > 0 && !skip) {
+						summarizeLine(f, line, lineStart == 0, summaries);
+					}
+				} finally {
+					channel.close();
+				}
+				return summaries;
+			}
+		};
+	}
+
+	private static void summarizeLine(File f, StringBuilder line, boolean isHeader, Map<String, RoundDataset> summaries) throws IOException {
+		if(isHeader) {
+			if(!line.toString().equals(RoundDataset.HEADER)) {
+				throw new IOException(f + " does not start with the header " + RoundDataset.HEADER);
+			}
+			return;
+		}
+		if(line.length() == 0) {
+			return;
+		}
+		// The configuration is described by the first 6 fields
+		String[] fields = line.toString().split(",");
+		if(fields.length != 10) {
+			throw new IOException(f + " contains the malformed record " + line);
+		}
+		int end = -1;
+		for(int k = 0; k < 6; k++) {
+			end = line.indexOf(",", end + 1);
+		}
+		try {
+			String configuration = line.substring(0, end);
+			RoundDataset d = summaries.get(configuration);
+			if(d == null) {
+				d = new RoundDataset(Dataset.Algorithm.valueOf(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+					Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Double.parseDouble(fields[5]));
+				d.discardRecords();
+				summaries.put(configuration, d);
+			}
+			d.add(Integer.parseInt(fields[6]), Integer.parseInt(fields[7]), Long.parseLong(fields[8]), Double.parseDouble(fields[9]));
+		} catch(IllegalArgumentException e) {
+			throw new IOException(f + " contains the malformed record " + line, e);
+		}
+	}
+
+	/**
+	 * Summarizes every n-th block of a binary file.
+	 */
+	private static Callable<Map<String, RoundDataset>> binaryChunk(final File f, final int part, final int parts) {
+		return new Callable<Map<String, RoundDataset>>() {
+			@Override
+			public Map<String, RoundDataset> call() throws IOException {
+				Map<String, RoundDataset> summaries = new HashMap<String, RoundDataset>();
+				BinaryRoundReader reader = new BinaryRoundReader(f);
+				try {
+					for(int block = 0; reader.next(); block++) {
+						if(block % parts != part) {
+							continue;
+						}
+						RoundDataset d = new RoundDataset(reader.getAlgorithm(), reader.getNumSlots(), reader.getNumRounds(),
+							reader.getNumBits(), reader.getNumClients(), reader.getClientActivity());
+						String key = key(d);
+						RoundDataset summary = summaries.get(key);
+						if(summary == null) {
+							summary = d;
+							summary.discardRecords();
+							summaries.put(key, summary);
+						}
+						for(int i = 0; i < reader.getRows(); i++) {
+							summary.add(reader.getCollisions(i), reader.getRequiredRounds(i), reader.getEmptySlots(i), reader.getData(i));
+						}
+					}
+				} finally {
+					reader.close();
+				}
+				return summaries;
+			}
+		};
+	}
+
+	/**
+	 * @return The configuration of a dataset, as it appears in its .csv records
+	 */
+	private static String key(RoundDataset d) {
+		return d.getAlgorithm() + "," + d.getNumSlots() + "," + d.getNumRounds() + ","
+			+ d.getNumBits() + "," + d.getNumClients() + "," + d.getClientActivity();
+	}
+
+	private static void appendStatistics(StringBuilder sb, SummaryStatistics s) {
+		sb.append(',').append(s.getMean())
+			.append(',').append(s.getStandardDeviation())
+			.append(',').append(s.getMin())
+			.append(',').append(s.getQuantile(0.25))
+			.append(',').append(s.getQuantile(0.5))
+			.append(',').append(s.getQuantile(0.75))
+			.append(',').append(s.getMax());
+	}
+
+	private static String columns(String metric) {
+		return metric + ".mean," + metric + ".sd," + metric + ".min," + metric + ".q1,"
+			+ metric + ".median," + metric + ".q3," + metric + ".max";
+	}
+}
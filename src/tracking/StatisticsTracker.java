@@ -1,10 +1,12 @@
 package tracking;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *	This class is used to keep track of the measurements
  * 	of a scheduling simulation run. 
+ *	It can be shared by several threads that take samples concurrently.
  */
 public class StatisticsTracker {
 
@@ -13,7 +15,7 @@ public class StatisticsTracker {
 	// The number of samples that have so far been recorded, per client
 	private int[] observations;
 	// The number of samples that have so far been recorded, overall
-	private int overallObservations;
+	private final AtomicInteger overallObservations = new AtomicInteger();
 	// The total number of expected observations
 	private int LIMIT_OBSERVATIONS;
 	// The number of clients that are being simulated
@@ -21,7 +23,7 @@ public class StatisticsTracker {
 
 	// A boolean that indicates whether gathering information has finished,
 	// and the results are ready to be read.
-	private boolean isFinished;
+	private volatile boolean isFinished;
 	
 	/**
 	 * Instantiates a new tracker for a simulation run.
@@ -33,20 +35,48 @@ public class StatisticsTracker {
 		this.samples = samples;
 		this.clients = clients;
 		this.observations = new int[clients];
-		this.overallObservations = 0;
 		this.LIMIT_OBSERVATIONS = samples * clients;
 		this.isFinished = false;
 	}
 
 	public StatisticsTracker(int samples) {
 		this.samples = samples;
-		this.overallObservations = 0;
 		this.LIMIT_OBSERVATIONS = samples;
 		this.isFinished = false;
 	}
 
+	/**
+	 * Expects additional samples, e.g. because the samples that have been
+	 * taken so far are not precise enough. Must not be called while samples
+	 * are being taken.
+	 * @param samples The number of additional samples
+	 */
+	public void extend(int samples) {
+		LIMIT_OBSERVATIONS += samples;
+		isFinished = overallObservations.get() >= LIMIT_OBSERVATIONS;
+	}
+
+	/**
+	 * Counts samples that have been taken before, e.g. by a previous run
+	 * whose records have been restored. Must not be called while samples
+	 * are being taken.
+	 * @param samples The number of samples
+	 */
+	public void skip(int samples) {
+		LIMIT_OBSERVATIONS += samples;
+		overallObservations.addAndGet(samples);
+		isFinished = overallObservations.get() >= LIMIT_OBSERVATIONS;
+	}
+
+	/**
+	 * @return The number of samples that have been taken
+	 */
+	public int getObservations() {
+		return overallObservations.get();
+	}
+
 	public double getProgress() {
-		return (double) overallObservations / (double) LIMIT_OBSERVATIONS;
+		return (double) overallObservations.get() / (double) LIMIT_OBSERVATIONS;
 	}
 
 	public boolean isFinished() {
@@ -54,15 +84,17 @@ public class StatisticsTracker {
 	}
 
 	public boolean reportRound() {
-		if(overallObservations >= LIMIT_OBSERVATIONS) {
-			return false;
-		} else {
-			overallObservations++;
-			if(overallObservations == LIMIT_OBSERVATIONS) {
-				finish();
+		int current;
+		do {
+			current = overallObservations.get();
+			if(current >= LIMIT_OBSERVATIONS) {
+				return false;
 			}
-			return true;
+		} while(!overallObservations.compareAndSet(current, current + 1));
+		if(current + 1 == LIMIT_OBSERVATIONS) {
+			finish();
 		}
+		return true;
 	}
 
 	/**
@@ -70,7 +102,7 @@ public class StatisticsTracker {
 	 * @param userID	An integer in the range [0, clients) that identifies the user across multiple calls of this function.
 	 * @return  True iff this reservation is still relevant for the measurement
 	 */
-	public boolean reportReservation(int userID) {
+	public synchronized boolean reportReservation(int userID) {
 		if(observations[userID] >= samples) {
 			return false;
 		}
@@ -79,8 +111,7 @@ public class StatisticsTracker {
 			throw new IndexOutOfBoundsException("UserID: " + userID + "\nObservations[userID]: " + observations[userID]);
 		}
 		observations[userID]++;
-		overallObservations++;
-		if(overallObservations == LIMIT_OBSERVATIONS) {
+		if(overallObservations.incrementAndGet() == LIMIT_OBSERVATIONS) {
 			finish();
 		}
 		return true;
@@ -0,0 +1,116 @@
+package tracking;
+
+import java.util.Locale;
+
+/**
+ *	Summarizes a stream of values without keeping them: the number of values, their
+ *	mean and variance (updated with Welford's algorithm, which does not lose precision
+ *	over many values), their minimum and maximum, and a {@link QuantileSketch}.
+ *	Infinite and NaN values, e.g. the data of a round without any successful reservation,
+ *	are kept out of the mean and variance of the finite values. The mean is then their sum,
+ *	i.e. infinite or NaN, and the variance is NaN.
+ *	Summaries of parts of a stream can be merged into the summary of the whole stream.
+ */
+public class SummaryStatistics {
+
+	private long count;
+	// The number of finite values, which are summarized by the mean and the squares
+	private long finite;
+	private double mean;
+	// The sum of all values that are not finite, or 0 if there are none
+	private double nonFinite;
+	// The sum of squared differences from the mean
+	private double squares;
+	private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+	private final QuantileSketch sketch = new QuantileSketch();
+
+	public void add(double value) {
+		count++;
+		if(Double.isInfinite(value) || Double.isNaN(value)) {
+			nonFinite += value;
+		} else {
+			finite++;
+			double delta = value - mean;
+			mean += delta / finite;
+			squares += delta * (value - mean);
+		}
+		if(!Double.isNaN(value)) {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		sketch.add(value);
+	}
+
+	/**
+	 * Adds all values of another summary to this summary.
+	 */
+	public void merge(SummaryStatistics other) {
+		if(other.count == 0) {
+			return;
+		}
+		count += other.count;
+		nonFinite += other.nonFinite;
+		if(other.finite > 0) {
+			long total = finite + other.finite;
+			double delta = other.mean - mean;
+			mean += delta * other.finite / total;
+			squares += other.squares + delta * delta * ((double) finite * other.finite / total);
+			finite = total;
+		}
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		sketch.merge(other.sketch);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		if(count > finite) {
+			return nonFinite;
+		}
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * @return The sample variance, or NaN for less than two values or any value that is not finite
+	 */
+	public double getVariance() {
+		return count < 2 || count > finite ? Double.NaN : squares / (count - 1);
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+
+	/**
+	 * @param  q A quantile between 0 and 1
+	 * @return An estimate of the q-quantile, within the minimum and the maximum
+	 */
+	public double getQuantile(double q) {
+		if(count == 0) {
+			return Double.NaN;
+		}
+		return Math.max(min, Math.min(max, sketch.getQuantile(q)));
+	}
+
+	/**
+	 * @return The mean and standard deviation, followed by
+	 * the minimum, the quartiles and the maximum
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%.4g (sd %.3g) [%.4g %.4g %.4g %.4g %.4g]",
+			getMean(), getStandardDeviation(),
+			getMin(), getQuantile(0.25), getQuantile(0.5), getQuantile(0.75), getMax());
+	}
+}
@@ -0,0 +1,91 @@
+package tracking;
+
+/**
+ *	Checks that quantile sketches and summaries cope with values that are not finite,
+ *	such as the infinite data of a round without any successful reservation.
+ *	Run with {@code make test}.
+ */
+public class QuantileSketchTest {
+
+	public static void main(String[] args) {
+		infinityAmongExactValues();
+		infinityAmongManyDistinctValues();
+		mergeWithInfinity();
+		summaryWithInfinity();
+		System.out.println("QuantileSketchTest passed");
+	}
+
+	private static void infinityAmongExactValues() {
+		QuantileSketch sketch = new QuantileSketch();
+		sketch.add(8);
+		sketch.add(8);
+		sketch.add(34.13);
+		sketch.add(Double.POSITIVE_INFINITY);
+		check(sketch.getQuantile(0) == 8, "minimum of exact values");
+		check(sketch.getQuantile(0.5) == 8 + 0.5 * (34.13 - 8), "median of exact values");
+		check(sketch.getQuantile(0.75) == Double.POSITIVE_INFINITY, "interpolation towards infinity");
+		check(sketch.getQuantile(1) == Double.POSITIVE_INFINITY, "maximum of exact values");
+	}
+
+	private static void infinityAmongManyDistinctValues() {
+		QuantileSketch sketch = new QuantileSketch();
+		sketch.add(Double.POSITIVE_INFINITY);
+		for(int i = 1; i <= 300; i++) {
+			sketch.add(i);
+		}
+		sketch.add(Double.NEGATIVE_INFINITY);
+		sketch.add(Double.NaN);
+		check(sketch.getCount() == 303, "count of bucketed values");
+		check(sketch.getQuantile(0) == Double.NEGATIVE_INFINITY, "negative infinity ranks first");
+		check(Math.abs(sketch.getQuantile(0.5) / 151 - 1) <= 0.02, "median of bucketed values: " + sketch.getQuantile(0.5));
+		check(sketch.getQuantile(301d / 302) == Double.POSITIVE_INFINITY, "positive infinity ranks after all finite values");
+		check(Double.isNaN(sketch.getQuantile(1)), "NaN ranks last");
+	}
+
+	private static void mergeWithInfinity() {
+		QuantileSketch a = new QuantileSketch(), b = new QuantileSketch(), c = new QuantileSketch();
+		for(int i = 1; i <= 300; i++) {
+			a.add(i);
+			b.add(i + 300);
+		}
+		a.add(Double.POSITIVE_INFINITY);
+		b.add(Double.POSITIVE_INFINITY);
+		// c stays exact, and its infinity is merged into bucketed sketches
+		c.add(1000);
+		c.add(Double.POSITIVE_INFINITY);
+		a.merge(b);
+		a.merge(c);
+		check(a.getCount() == 604, "count of merged sketches");
+		check(Math.abs(a.getQuantile(0.5) / 302 - 1) <= 0.02, "median of merged sketches: " + a.getQuantile(0.5));
+		check(a.getQuantile(601d / 603) == Double.POSITIVE_INFINITY, "infinities of merged sketches");
+
+		QuantileSketch exact = new QuantileSketch();
+		exact.add(5);
+		exact.merge(c);
+		check(exact.getCount() == 3, "count of merged exact sketches");
+		check(exact.getQuantile(0.5) == 1000, "median of merged exact sketches");
+		check(exact.getQuantile(1) == Double.POSITIVE_INFINITY, "maximum of merged exact sketches");
+	}
+
+	private static void summaryWithInfinity() {
+		SummaryStatistics s = new SummaryStatistics(), t = new SummaryStatistics();
+		s.add(8);
+		s.add(Double.POSITIVE_INFINITY);
+		t.add(10);
+		check(s.getMean() == Double.POSITIVE_INFINITY, "mean with infinity");
+		check(s.getMin() == 8 && s.getMax() == Double.POSITIVE_INFINITY, "minimum and maximum with infinity");
+		t.merge(s);
+		check(t.getMean() == Double.POSITIVE_INFINITY, "mean of merged summaries with infinity");
+		check(t.getCount() == 3, "count of merged summaries");
+		SummaryStatistics finite = new SummaryStatistics();
+		finite.add(2);
+		finite.add(4);
+		check(finite.getMean() == 3 && finite.getVariance() == 2, "mean and variance of finite values");
+	}
+
+	private static void check(boolean condition, String what) {
+		if(!condition) {
+			throw new AssertionError("Failed: " + what);
+		}
+	}
+}